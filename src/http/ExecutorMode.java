@@ -0,0 +1,7 @@
+package http;
+
+public enum ExecutorMode {
+    SINGLE_THREAD,
+    BOUNDED_POOL,
+    VIRTUAL_THREADS
+}
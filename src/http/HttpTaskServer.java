@@ -5,54 +5,126 @@ import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpServer;
 import http.adapter.DurationAdapter;
 import http.adapter.LocalDateTimeAdapter;
+import http.adapter.TaskAdapter;
+import http.handler.BatchHandler;
 import http.handler.EpicsHandler;
 import http.handler.HistoryHandler;
 import http.handler.PrioritizedHandler;
+import http.handler.Router;
 import http.handler.SubtasksHandler;
+import http.handler.TaskJsonCache;
 import http.handler.TasksHandler;
 import manager.Managers;
 import manager.TaskManager;
+import models.Epic;
+import models.HttpMethod;
+import models.Subtask;
+import models.Task;
+import models.TaskType;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     private static final int PORT = 8080;
+    private static final int DEFAULT_BACKLOG = 0;
+    private static final int POOL_QUEUE_CAPACITY = 1024;
+    // 16 МБ JSON задач хватает на десятки тысяч задач.
+    private static final long JSON_CACHE_MAX_BYTES = 16L * 1024 * 1024;
 
     private final HttpServer server;
     private final InetSocketAddress address = new InetSocketAddress("localhost", PORT);
     private final TaskManager manager; // = Managers.getDefault();
-    private static Gson gson;
+    // Инициализируется сразу: к нему обращаются обработчики из нескольких потоков исполнителя.
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(Task.class, new TaskAdapter(TaskType.TASK))
+            .registerTypeAdapter(Epic.class, new TaskAdapter(TaskType.EPIC))
+            .registerTypeAdapter(Subtask.class, new TaskAdapter(TaskType.SUBTASK))
+            .create();
+    private final ExecutorService executor;
 
     public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, ExecutorMode.SINGLE_THREAD, DEFAULT_BACKLOG);
+    }
+
+    // Для BOUNDED_POOL и VIRTUAL_THREADS менеджер должен быть потокобезопасным (см. Managers.getConcurrent()).
+    public HttpTaskServer(TaskManager taskManager, ExecutorMode executorMode, int backlog) throws IOException {
         manager = taskManager;
-        server = HttpServer.create(address, 0);
+        server = HttpServer.create(address, backlog);
+        executor = createExecutor(executorMode);
+        server.setExecutor(executor);
         configureHandlers();
     }
 
+    private static ExecutorService createExecutor(ExecutorMode executorMode) {
+        return switch (executorMode) {
+            case SINGLE_THREAD -> null;
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+            case BOUNDED_POOL -> {
+                int poolSize = Runtime.getRuntime().availableProcessors();
+                // При переполнении очереди запрос выполняется в потоке диспетчера — это притормаживает приём новых.
+                yield new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(POOL_QUEUE_CAPACITY), new ThreadPoolExecutor.CallerRunsPolicy());
+            }
+        };
+    }
+
+    // Все маршруты собраны в одном дереве; путь разбирается один раз, ID передаются обработчикам числами.
     private void configureHandlers() {
-        server.createContext("/tasks", new TasksHandler(manager));
-        server.createContext("/epics", new EpicsHandler(manager));
-        server.createContext("/subtasks", new SubtasksHandler(manager));
-        server.createContext("/history", new HistoryHandler(manager));
-        server.createContext("/prioritized", new PrioritizedHandler(manager));
+        // Кэш JSON свой у каждого сервера; история отдаёт копии задач и обходится без него.
+        TaskJsonCache jsonCache = new TaskJsonCache(JSON_CACHE_MAX_BYTES);
+        TasksHandler tasks = new TasksHandler(manager, jsonCache);
+        EpicsHandler epics = new EpicsHandler(manager, jsonCache);
+        SubtasksHandler subtasks = new SubtasksHandler(manager, jsonCache);
+        HistoryHandler history = new HistoryHandler(manager);
+        PrioritizedHandler prioritized = new PrioritizedHandler(manager, jsonCache);
+        BatchHandler batch = new BatchHandler(manager);
+
+        Router router = new Router()
+                .add(HttpMethod.GET, "/tasks", (exchange, ids) -> tasks.getTasks(exchange))
+                .add(HttpMethod.POST, "/tasks", (exchange, ids) -> tasks.createTask(exchange))
+                .add(HttpMethod.GET, "/tasks/{id}", (exchange, ids) -> tasks.getTask(exchange, ids[0]))
+                .add(HttpMethod.POST, "/tasks/{id}", (exchange, ids) -> tasks.updateTask(exchange, ids[0]))
+                .add(HttpMethod.DELETE, "/tasks/{id}", (exchange, ids) -> tasks.deleteTask(exchange, ids[0]))
+                .add(HttpMethod.GET, "/epics", (exchange, ids) -> epics.getEpics(exchange))
+                .add(HttpMethod.POST, "/epics", (exchange, ids) -> epics.createEpic(exchange))
+                .add(HttpMethod.GET, "/epics/{id}", (exchange, ids) -> epics.getEpic(exchange, ids[0]))
+                .add(HttpMethod.POST, "/epics/{id}", (exchange, ids) -> epics.updateEpic(exchange, ids[0]))
+                .add(HttpMethod.DELETE, "/epics/{id}", (exchange, ids) -> epics.deleteEpic(exchange, ids[0]))
+                .add(HttpMethod.GET, "/epics/{id}/subtasks", (exchange, ids) -> epics.getEpicSubtasks(exchange, ids[0]))
+                .add(HttpMethod.GET, "/subtasks", (exchange, ids) -> subtasks.getSubtasks(exchange))
+                .add(HttpMethod.POST, "/subtasks", (exchange, ids) -> subtasks.createSubtask(exchange))
+                .add(HttpMethod.GET, "/subtasks/{id}", (exchange, ids) -> subtasks.getSubtask(exchange, ids[0]))
+                .add(HttpMethod.POST, "/subtasks/{id}", (exchange, ids) -> subtasks.updateSubtask(exchange, ids[0]))
+                .add(HttpMethod.DELETE, "/subtasks/{id}", (exchange, ids) -> subtasks.deleteSubtask(exchange, ids[0]))
+                .add(HttpMethod.GET, "/history", (exchange, ids) -> history.getHistory(exchange))
+                .add(HttpMethod.GET, "/prioritized", (exchange, ids) -> prioritized.getPrioritized(exchange))
+                .add(HttpMethod.POST, "/batch", (exchange, ids) -> batch.applyBatch(exchange));
+        server.createContext("/", router);
     }
 
     public static Gson getGson() {
-        if (gson == null) {
-            gson = new GsonBuilder()
-                    .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                    .registerTypeAdapter(Duration.class, new DurationAdapter())
-                    .create();
-        }
         return gson;
     }
 
+    // Аргументы запуска: [режим исполнителя] [backlog], например: VIRTUAL_THREADS 128
     public static void main(String[] args) {
         try {
-            HttpTaskServer server = new HttpTaskServer(Managers.getDefault());
+            ExecutorMode executorMode = args.length > 0 ? ExecutorMode.valueOf(args[0]) : ExecutorMode.SINGLE_THREAD;
+            int backlog = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BACKLOG;
+            TaskManager taskManager = executorMode == ExecutorMode.SINGLE_THREAD ?
+                    Managers.getDefault() : Managers.getConcurrent();
+
+            HttpTaskServer server = new HttpTaskServer(taskManager, executorMode, backlog);
             server.start();
         } catch (IOException e) {
             System.err.println("Failed to start HTTP Task Server: " + e.getMessage());
@@ -66,5 +138,8 @@ public class HttpTaskServer {
 
     public void stop() {
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 }
@@ -15,7 +15,7 @@ public class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
     @Override
     public void write(JsonWriter jsonWriter, LocalDateTime localDateTime) throws IOException {
         if (localDateTime != null) {
-            jsonWriter.value(localDateTime.format(FORMATTER));
+            jsonWriter.value(format(localDateTime));
         } else {
             jsonWriter.nullValue();
         }
@@ -27,6 +27,57 @@ public class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
             jsonReader.nextNull();
             return null;
         }
-        return LocalDateTime.parse(jsonReader.nextString(), FORMATTER);
+        return parse(jsonReader.nextString());
     }
-}
\ No newline at end of file
+
+    // "dd.MM.yy: HH:mm" собирается в массив символов без DateTimeFormatter.
+    // Годы вне 2000–2099 форматтер пишет иначе ("yy" — база 2000), для них остаётся общий путь.
+    static String format(LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 2000 || year > 2099) {
+            return dateTime.format(FORMATTER);
+        }
+
+        char[] chars = new char[15];
+        putTwoDigits(chars, 0, dateTime.getDayOfMonth());
+        chars[2] = '.';
+        putTwoDigits(chars, 3, dateTime.getMonthValue());
+        chars[5] = '.';
+        putTwoDigits(chars, 6, year - 2000);
+        chars[8] = ':';
+        chars[9] = ' ';
+        putTwoDigits(chars, 10, dateTime.getHour());
+        chars[12] = ':';
+        putTwoDigits(chars, 13, dateTime.getMinute());
+        return new String(chars);
+    }
+
+    static LocalDateTime parse(String value) {
+        if (value.length() == 15 && value.charAt(2) == '.' && value.charAt(5) == '.' && value.charAt(8) == ':'
+                && value.charAt(9) == ' ' && value.charAt(12) == ':') {
+            int day = twoDigits(value, 0);
+            int month = twoDigits(value, 3);
+            int year = twoDigits(value, 6);
+            int hour = twoDigits(value, 10);
+            int minute = twoDigits(value, 13);
+            if ((day | month | year | hour | minute) >= 0) {
+                return LocalDateTime.of(2000 + year, month, day, hour, minute);
+            }
+        }
+        return LocalDateTime.parse(value, FORMATTER);
+    }
+
+    private static void putTwoDigits(char[] chars, int index, int value) {
+        chars[index] = (char) ('0' + value / 10);
+        chars[index + 1] = (char) ('0' + value % 10);
+    }
+
+    private static int twoDigits(String value, int index) {
+        int high = value.charAt(index) - '0';
+        int low = value.charAt(index + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+}
@@ -0,0 +1,157 @@
+package http.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import models.Epic;
+import models.Status;
+import models.Subtask;
+import models.Task;
+import models.TaskType;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+// Запись и чтение задач без рефлексии Gson. JSON совпадает с рефлексивным: сначала поля подкласса
+// (epicID или subtaskIDs и endTime), затем поля Task; пустые поля не пишутся.
+// Запись выбирает набор полей по TaskType задачи, чтение создаёт класс, для которого адаптер зарегистрирован.
+public class TaskAdapter extends TypeAdapter<Task> {
+    private final TaskType readType;
+
+    public TaskAdapter(TaskType readType) {
+        this.readType = readType;
+    }
+
+    @Override
+    public void write(JsonWriter jsonWriter, Task task) throws IOException {
+        if (task == null) {
+            jsonWriter.nullValue();
+            return;
+        }
+
+        jsonWriter.beginObject();
+        switch (task.getType()) {
+            case TASK -> {
+            }
+            case EPIC -> {
+                Epic epic = (Epic) task;
+                ArrayList<Integer> subtaskIDs = epic.getSubtaskIDs();
+                if (subtaskIDs != null) {
+                    jsonWriter.name("subtaskIDs").beginArray();
+                    for (int i = 0; i < subtaskIDs.size(); i++) {
+                        jsonWriter.value(subtaskIDs.get(i).intValue());
+                    }
+                    jsonWriter.endArray();
+                }
+                writeDateTime(jsonWriter, "endTime", epic.getEndTime());
+            }
+            case SUBTASK -> jsonWriter.name("epicID").value(((Subtask) task).getEpicID());
+        }
+
+        writeString(jsonWriter, "name", task.getName());
+        writeString(jsonWriter, "description", task.getDescription());
+        if (task.hasID()) {
+            jsonWriter.name("id").value(task.getID());
+        }
+        if (task.getStatus() != null) {
+            jsonWriter.name("status").value(task.getStatus().name());
+        }
+        writeDateTime(jsonWriter, "startTime", task.getStartTime());
+        if (task.getDuration() != null) {
+            jsonWriter.name("duration").value(task.getDuration().toMinutes());
+        }
+        jsonWriter.endObject();
+    }
+
+    @Override
+    public Task read(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+
+        String name = null;
+        String description = null;
+        Integer id = null;
+        Status status = null;
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
+        Duration duration = null;
+        Integer epicID = null;
+        ArrayList<Integer> subtaskIDs = null;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String field = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "name" -> name = jsonReader.nextString();
+                case "description" -> description = jsonReader.nextString();
+                case "id" -> id = jsonReader.nextInt();
+                case "status" -> status = status(jsonReader.nextString());
+                case "startTime" -> startTime = LocalDateTimeAdapter.parse(jsonReader.nextString());
+                case "endTime" -> endTime = LocalDateTimeAdapter.parse(jsonReader.nextString());
+                case "duration" -> duration = Duration.ofMinutes(jsonReader.nextLong());
+                case "epicID" -> epicID = jsonReader.nextInt();
+                case "subtaskIDs" -> {
+                    subtaskIDs = new ArrayList<>();
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        subtaskIDs.add(jsonReader.nextInt());
+                    }
+                    jsonReader.endArray();
+                }
+                default -> jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+
+        Task task = switch (readType) {
+            case TASK -> new Task(name, description, status);
+            case EPIC -> {
+                Epic epic = new Epic(name, description, status);
+                if (subtaskIDs != null) {
+                    epic.setSubtaskIDs(subtaskIDs);
+                }
+                epic.setEndTime(endTime);
+                yield epic;
+            }
+            // Подзадача без epicID не найдёт эпик: addSubtask вернёт null.
+            case SUBTASK -> new Subtask(name, description, status, epicID != null ? epicID : 0);
+        };
+        if (id != null) {
+            task.setID(id);
+        }
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    // Как и стандартный адаптер перечислений Gson, неизвестное значение читается как null.
+    private static Status status(String value) {
+        for (Status status : Status.values()) {
+            if (status.name().equals(value)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    private static void writeString(JsonWriter jsonWriter, String name, String value) throws IOException {
+        if (value != null) {
+            jsonWriter.name(name).value(value);
+        }
+    }
+
+    private static void writeDateTime(JsonWriter jsonWriter, String name, LocalDateTime value) throws IOException {
+        if (value != null) {
+            jsonWriter.name(name).value(LocalDateTimeAdapter.format(value));
+        }
+    }
+}
@@ -1,27 +1,266 @@
 package http.handler;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import exceptions.ErrorResponse;
 import http.HttpTaskServer;
 import models.HttpMethod;
+import models.Status;
+import models.Task;
+import models.TaskFilter;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 public class BaseHttpHandler {
     protected static final String CONTENT_TYPE_JSON = "application/json;charset=utf-8";
+    protected static final int MAX_PAGE_LIMIT = 1000;
+    protected static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // Ответы короче порога не сжимаются: заголовок и словарь gzip съедят выигрыш.
+    protected static final int GZIP_MIN_SIZE = 1024;
     protected final Gson gson;
+    // Кэш JSON задач сервера или null: копии задач (история) в него не кладутся, иначе вытесняли бы живые.
+    private final TaskJsonCache jsonCache;
+    // Версии менеджера начинаются заново после перезапуска, поэтому в ETag добавляется метка запуска обработчика.
+    private final String etagPrefix = Long.toHexString(System.nanoTime()) + "-";
 
     public BaseHttpHandler() {
+        this(null);
+    }
+
+    public BaseHttpHandler(TaskJsonCache jsonCache) {
         this.gson = HttpTaskServer.getGson();
+        this.jsonCache = jsonCache;
     }
 
     protected void sendSuccess(HttpExchange exchange, String response) throws IOException {
         sendResponse(exchange, response, 200);
     }
 
+    protected void sendTask(HttpExchange exchange, Task task) throws IOException {
+        sendResponse(exchange, toJson(task), 200);
+    }
+
+    private byte[] toJson(Task task) {
+        if (jsonCache == null) {
+            return serialize(task);
+        }
+        return jsonCache.get(task, this::serialize);
+    }
+
+    private byte[] serialize(Task task) {
+        return gson.toJson(task, task.getClass()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Список сериализуется прямо в тело ответа через JsonWriter, ответ уходит частями (chunked):
+    // ни строки, ни массива байт со всем JSON в памяти не строится.
+    protected void sendSuccessStream(HttpExchange exchange, Collection<?> items) throws IOException {
+        sendSuccessStream(exchange, items, null);
+    }
+
+    // С projection задачи пишутся только запрошенными полями (см. TaskProjection).
+    protected void sendSuccessStream(HttpExchange exchange, Collection<?> items, TaskProjection projection)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        OutputStream body;
+        if (acceptsGzip(exchange)) {
+            body = new GzipResponseStream(exchange, 200, GZIP_MIN_SIZE);
+        } else {
+            exchange.sendResponseHeaders(200, 0);
+            body = exchange.getResponseBody();
+        }
+
+        // Полные задачи собираются из готовых фрагментов кэша, остальное пишется через JsonWriter.
+        if (projection == null && !items.isEmpty() && items.iterator().next() instanceof Task) {
+            try (OutputStream out = new BufferedOutputStream(body, 8192)) {
+                out.write('[');
+                boolean first = true;
+                for (Object item : items) {
+                    if (!first) {
+                        out.write(',');
+                    }
+                    first = false;
+                    out.write(toJson((Task) item));
+                }
+                out.write(']');
+            }
+            return;
+        }
+
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(
+                new OutputStreamWriter(body, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (Object item : items) {
+                if (projection != null && item instanceof Task task) {
+                    projection.write(writer, task);
+                } else {
+                    gson.toJson(item, item.getClass(), writer);
+                }
+            }
+            writer.endArray();
+        }
+    }
+
+    // Полная страница отдаётся с заголовком X-Next-Cursor — его значение передаётся в cursor следующего запроса.
+    // Неполная страница — последняя.
+    protected void sendPage(HttpExchange exchange, List<? extends Task> page, int limit, TaskProjection projection)
+            throws IOException {
+        if (page.size() == limit) {
+            exchange.getResponseHeaders().set(NEXT_CURSOR_HEADER, String.valueOf(page.getLast().getID()));
+        }
+        sendSuccessStream(exchange, page, projection);
+    }
+
+    // Ставит ETag по версии данных и, если клиент прислал её же в If-None-Match, отвечает 304 без тела.
+    // Версию нужно прочитать до чтения данных: если они успели измениться, ответ окажется новее тега,
+    // и следующий запрос с этим тегом просто получит 200.
+    // Сжатое и несжатое тело — разные представления: суффикс -gzip добавляется к тегу там,
+    // где тело действительно сжимается (см. markGzipped), поэтому клиент может прислать любой из двух тегов.
+    protected boolean sendNotModified(HttpExchange exchange, long version) throws IOException {
+        String etag = "\"" + etagPrefix + version + "\"";
+        String gzipEtag = acceptsGzip(exchange) ? gzipEtag(etag) : null;
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(gzipEtag)) {
+                exchange.getResponseHeaders().set("ETag", gzipEtag);
+            }
+            if (tag.equals(etag) || tag.equals(gzipEtag) || tag.equals("*")) {
+                exchange.sendResponseHeaders(304, -1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected Map<String, String> getQueryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // limit из запроса или null, если постраничный вывод не запрошен (нет ни limit, ни cursor).
+    protected Integer getPageLimit(Map<String, String> query) {
+        if (!query.containsKey("limit") && !query.containsKey("cursor")) {
+            return null;
+        }
+        if (!query.containsKey("limit")) {
+            return MAX_PAGE_LIMIT;
+        }
+
+        int limit = parseQueryInt(query, "limit");
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("Параметр limit должен быть от 1 до " + MAX_PAGE_LIMIT);
+        }
+        return limit;
+    }
+
+    protected int getPageCursor(Map<String, String> query) {
+        if (!query.containsKey("cursor")) {
+            return 0;
+        }
+
+        int cursor = parseQueryInt(query, "cursor");
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Параметр cursor не может быть отрицательным");
+        }
+        return cursor;
+    }
+
+    // Параметр fields: список полей задачи через запятую или null, если нужны все поля.
+    protected TaskProjection getProjection(Map<String, String> query) {
+        String fields = query.get("fields");
+        return fields == null ? null : TaskProjection.parse(fields, gson);
+    }
+
+    // Фильтр из параметров status, from, to и epic или null, если ни один не задан.
+    // from и to — ISO-дата (2025-01-31) или дата и время (2025-01-31T09:00); epic допустим только для подзадач.
+    protected TaskFilter getTaskFilter(Map<String, String> query, boolean epicAllowed) {
+        if (!query.containsKey("status") && !query.containsKey("from") && !query.containsKey("to")
+                && !query.containsKey("epic")) {
+            return null;
+        }
+        if (!epicAllowed && query.containsKey("epic")) {
+            throw new IllegalArgumentException("Параметр epic допустим только для подзадач");
+        }
+
+        Status status = null;
+        if (query.containsKey("status")) {
+            try {
+                status = Status.valueOf(query.get("status"));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Некорректное значение параметра status: " + query.get("status"));
+            }
+        }
+        Integer epicID = query.containsKey("epic") ? parseQueryInt(query, "epic") : null;
+        return new TaskFilter(status, epicID, parseQueryDateTime(query, "from"), parseQueryDateTime(query, "to"));
+    }
+
+    // Страница уже отфильтрованного списка, упорядоченного по id.
+    protected <T extends Task> List<T> pageOf(List<T> tasks, int afterID, int limit) {
+        int start = 0;
+        while (start < tasks.size() && tasks.get(start).getID() <= afterID) {
+            start++;
+        }
+        return tasks.subList(start, Math.min(tasks.size(), start + limit));
+    }
+
+    private LocalDateTime parseQueryDateTime(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + name + ": " + value);
+        }
+    }
+
+    private int parseQueryInt(Map<String, String> query, String name) {
+        try {
+            return Integer.parseInt(query.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + name + ": " + query.get(name));
+        }
+    }
+
     protected void sendCreated(HttpExchange exchange, String response) throws IOException {
         sendResponse(exchange, response, 201);
     }
@@ -53,8 +292,16 @@ public class BaseHttpHandler {
     }
 
     protected void sendResponse(HttpExchange exchange, String response, int code) throws IOException {
-        byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+        sendResponse(exchange, response.getBytes(StandardCharsets.UTF_8), code);
+    }
+
+    private void sendResponse(HttpExchange exchange, byte[] responseBytes, int code) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (responseBytes.length >= GZIP_MIN_SIZE && acceptsGzip(exchange)) {
+            responseBytes = gzip(responseBytes);
+            markGzipped(exchange);
+        }
         exchange.sendResponseHeaders(code, responseBytes.length);
 
         try (OutputStream os = exchange.getResponseBody()) {
@@ -62,6 +309,54 @@ public class BaseHttpHandler {
         }
     }
 
+    // Вызывается, когда тело ответа действительно сжимается: ставит Content-Encoding и помечает ETag.
+    static void markGzipped(HttpExchange exchange) {
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        String etag = exchange.getResponseHeaders().getFirst("ETag");
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", gzipEtag(etag));
+        }
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    // Accept-Encoding: gzip, x-gzip или *, если для них не указано q=0.
+    protected boolean acceptsGzip(HttpExchange exchange) {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equalsIgnoreCase("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0{0,3})?")) {
+                    rejected = true;
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected HttpMethod getHttpMethod(String method) {
         try {
             return HttpMethod.valueOf(method);
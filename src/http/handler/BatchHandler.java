@@ -0,0 +1,96 @@
+package http.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import http.HttpTaskServer;
+import manager.TaskManager;
+import models.BatchAction;
+import models.BatchOperation;
+import models.BatchResult;
+import models.Epic;
+import models.Subtask;
+import models.Task;
+import models.TaskType;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// POST /batch — массив операций вида {"action": "CREATE", "type": "SUBTASK", "id": 3, "task": {...}}.
+// Ответ — массив результатов в том же порядке: {"status": 201, "id": 7} или {"status": 404, "id": 3, "message": ...}.
+// Когда ответ получен, пакет уже надёжно сохранён.
+public class BatchHandler extends BaseHttpHandler {
+    private static final int MAX_BATCH_SIZE = 10_000;
+
+    private final TaskManager taskManager;
+    private final Gson gson;
+
+    public BatchHandler(TaskManager taskManager) {
+        this.taskManager = taskManager;
+        gson = HttpTaskServer.getGson();
+    }
+
+    public void applyBatch(HttpExchange exchange) throws IOException {
+        JsonElement body;
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            body = JsonParser.parseReader(reader);
+        }
+        if (!body.isJsonArray()) {
+            throw new IllegalArgumentException("Ожидался массив операций");
+        }
+
+        JsonArray array = body.getAsJsonArray();
+        if (array.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("В пакете не больше " + MAX_BATCH_SIZE + " операций");
+        }
+        List<BatchOperation> operations = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            operations.add(parseOperation(element));
+        }
+
+        List<BatchResult> results = taskManager.applyBatch(operations);
+        taskManager.awaitDurable();
+        sendSuccessStream(exchange, results);
+    }
+
+    private BatchOperation parseOperation(JsonElement element) {
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("Операция пакета должна быть объектом");
+        }
+
+        JsonObject object = element.getAsJsonObject();
+        BatchAction action = enumValue(BatchAction.class, object, "action");
+        TaskType type = enumValue(TaskType.class, object, "type");
+        Integer id = object.has("id") && !object.get("id").isJsonNull() ? object.get("id").getAsInt() : null;
+
+        Task task = null;
+        JsonElement taskJson = object.get("task");
+        if (type != null && taskJson != null && taskJson.isJsonObject()) {
+            task = switch (type) {
+                case TASK -> gson.fromJson(taskJson, Task.class);
+                case EPIC -> gson.fromJson(taskJson, Epic.class);
+                case SUBTASK -> gson.fromJson(taskJson, Subtask.class);
+            };
+        }
+        return new BatchOperation(action, type, id, task);
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> enumClass, JsonObject object, String name) {
+        JsonElement value = object.get(name);
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(enumClass, value.getAsString());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректное значение " + name + ": " + value.getAsString());
+        }
+    }
+}
@@ -2,156 +2,134 @@ package http.handler;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 import exceptions.TaskValidationException;
 import http.HttpTaskServer;
 import manager.TaskManager;
 import models.Epic;
-import models.HttpMethod;
 import models.Subtask;
+import models.TaskFilter;
 
 import java.io.IOException;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
-public class EpicsHandler extends BaseHttpHandler implements HttpHandler {
+// Обработчики маршрутов /epics, /epics/{id} и /epics/{id}/subtasks; маршруты задаются в HttpTaskServer.
+public class EpicsHandler extends BaseHttpHandler {
 
     private final TaskManager taskManager;
     private final Gson gson;
 
-    public EpicsHandler(TaskManager taskManager) {
+    public EpicsHandler(TaskManager taskManager, TaskJsonCache jsonCache) {
+        super(jsonCache);
         this.taskManager = taskManager;
         gson = HttpTaskServer.getGson();
     }
 
+    public void getEpic(HttpExchange exchange, int id) throws IOException {
+        Epic epic = taskManager.getEpicByID(id);
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        HttpMethod httpMethod = getHttpMethod(method);
-
-        try {
-            switch (httpMethod) {
-                case GET:
-                    handleGet(exchange);
-                    break;
-                case POST:
-                    handlePost(exchange);
-                    break;
-                case DELETE:
-                    handleDelete(exchange);
-                    break;
-                default:
-                    sendMethodNotAllowed(exchange, String.format(
-                            "Обработка данного метода %s не предусмотрена", method), method);
+        if (epic != null) {
+            if (sendNotModified(exchange, epic.getVersion())) {
+                return;
             }
-        } catch (Exception e) {
-            sendInternalError(exchange, e.getMessage(), method);
-        } finally {
-            exchange.close();
+            sendTask(exchange, epic);
+        } else {
+            sendNotFound(exchange, "Эпик с id " + id + " не найден", exchange.getRequestURI().getPath());
         }
     }
 
-    private void handleGet(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
-
-        if (urlParts.length == 3) {
-            Integer id = getIDFromPath(urlParts[2]);
-            Epic epic = taskManager.getEpicByID(id);
-
-            if (epic != null) {
-                String response = gson.toJson(epic);
-                sendSuccess(exchange, response);
+    public void getEpics(HttpExchange exchange) throws IOException {
+        Map<String, String> query = getQueryParameters(exchange);
+        Integer limit = getPageLimit(query);
+        int cursor = getPageCursor(query);
+        TaskProjection projection = getProjection(query);
+        TaskFilter filter = getTaskFilter(query, false);
+        if (sendNotModified(exchange, taskManager.getEpicsVersion())) {
+            return;
+        }
+        if (filter != null) {
+            List<Epic> found = taskManager.findEpics(filter);
+            if (limit != null) {
+                sendPage(exchange, pageOf(found, cursor, limit), limit, projection);
             } else {
-                sendNotFound(exchange, "Эпик с id " + id + " не найден", path);
+                sendSuccessStream(exchange, found, projection);
             }
-        } else if (urlParts.length == 2) {
-            List<Epic> allEpics = taskManager.getAllEpics();
-            String response = gson.toJson(allEpics);
-            sendSuccess(exchange, response);
-        } else if (urlParts.length == 4 && "subtasks".equals(urlParts[3])) {
-            int epicId = getIDFromPath(urlParts[2]);
-            Epic epic = taskManager.getEpicByID(epicId);
-
-            if (epic == null) {
-                sendNotFound(exchange, "Эпик с id " + epicId + " не найден", path);
-                return;
-            }
-
-            List<Subtask> subtasks = taskManager.getSubtasksByEpic(epicId);
-            String response = gson.toJson(subtasks);
-            sendSuccess(exchange, response);
-        } else {
-            sendBadRequest(exchange, "Некорректный путь", path);
+            return;
+        }
+        if (limit != null) {
+            sendPage(exchange, taskManager.getEpicsPage(cursor, limit), limit, projection);
+            return;
         }
-    }
 
-    private void handlePost(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
+        List<Epic> allEpics = taskManager.getAllEpics();
+        sendSuccessStream(exchange, allEpics, projection);
+    }
 
-        byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
-        String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
-        Epic epic = gson.fromJson(bodyString, Epic.class);
+    public void getEpicSubtasks(HttpExchange exchange, int epicId) throws IOException {
+        TaskProjection projection = getProjection(getQueryParameters(exchange));
+        Epic epic = taskManager.getEpicByID(epicId);
 
         if (epic == null) {
-            sendBadRequest(exchange, "Неверный формат эпика", path);
+            sendNotFound(exchange, "Эпик с id " + epicId + " не найден", exchange.getRequestURI().getPath());
+            return;
+        }
+        if (sendNotModified(exchange, taskManager.getSubtasksVersion())) {
             return;
         }
 
-        if (urlParts.length == 3) {
-            int id = getIDFromPath(urlParts[2]);
-            Epic existingEpic = taskManager.getEpicByID(id);
+        List<Subtask> subtasks = taskManager.getSubtasksByEpic(epicId);
+        sendSuccessStream(exchange, subtasks, projection);
+    }
 
-            if (existingEpic == null) {
-                sendNotFound(exchange, "Эпик с id " + id + " не найден", path);
-            }
+    public void updateEpic(HttpExchange exchange, int id) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Epic epic = readEpic(exchange);
+        if (epic == null) {
+            sendBadRequest(exchange, "Неверный формат эпика", path);
+            return;
+        }
 
-            taskManager.updateEpic(epic);
-            String response = gson.toJson(taskManager.getEpicByID(id));
-            sendSuccess(exchange, response);
-        } else if (urlParts.length == 2) {
-            try {
-                int id = taskManager.addEpic(epic);
-                String response = gson.toJson(taskManager.getEpicByID(id));
-                sendCreated(exchange, response);
-            } catch (TaskValidationException e) {
-                sendHasOverlaps(exchange, e.getMessage(), path);
-            }
-        } else {
-            sendBadRequest(exchange, "Некорректный путь", path);
+        Epic existingEpic = taskManager.getEpicByID(id);
+        if (existingEpic == null) {
+            sendNotFound(exchange, "Эпик с id " + id + " не найден", path);
+            return;
         }
-    }
 
+        taskManager.updateEpic(epic);
+        String response = gson.toJson(taskManager.getEpicByID(id));
+        sendSuccess(exchange, response);
+    }
 
-    private void handleDelete(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
+    public void createEpic(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Epic epic = readEpic(exchange);
+        if (epic == null) {
+            sendBadRequest(exchange, "Неверный формат эпика", path);
+            return;
+        }
 
-        if (urlParts.length != 3) {
-            sendBadRequest(exchange, "Некорректный путь для удаления", path);
+        try {
+            int id = taskManager.addEpic(epic);
+            String response = gson.toJson(taskManager.getEpicByID(id));
+            sendCreated(exchange, response);
+        } catch (TaskValidationException e) {
+            sendHasOverlaps(exchange, e.getMessage(), path);
         }
+    }
 
-        Integer id = getIDFromPath(urlParts[2]);
+    public void deleteEpic(HttpExchange exchange, int id) throws IOException {
         Epic epic = taskManager.deleteEpicByID(id);
         if (epic != null) {
             sendSuccess(exchange, "Эпик с id " + id + " успешно удален!");
         } else {
-            sendNotFound(exchange, "Эпик с id " + id + " не найден!", path);
+            sendNotFound(exchange, "Эпик с id " + id + " не найден!", exchange.getRequestURI().getPath());
         }
     }
 
-    private Integer getIDFromPath(String id) {
-        try {
-            return Integer.parseInt(id);
-        } catch (NumberFormatException e) {
-            throw new RuntimeException("Некорректный формат ID: " + id);
-        }
+    private Epic readEpic(HttpExchange exchange) throws IOException {
+        byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
+        String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
+        return gson.fromJson(bodyString, Epic.class);
     }
-
-}
\ No newline at end of file
+}
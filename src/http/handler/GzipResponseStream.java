@@ -0,0 +1,70 @@
+package http.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Тело ответа для клиента, принимающего gzip. Первые байты копятся в буфере:
+// если ответ закончился раньше порога, он уходит как есть с Content-Length,
+// иначе заголовки отправляются с Content-Encoding: gzip и дальше всё идёт частями через GZIPOutputStream.
+final class GzipResponseStream extends OutputStream {
+    private final HttpExchange exchange;
+    private final int code;
+    private final int threshold;
+    private ByteArrayOutputStream buffer;
+    private OutputStream out;
+
+    GzipResponseStream(HttpExchange exchange, int code, int threshold) {
+        this.exchange = exchange;
+        this.code = code;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(threshold);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (out == null) {
+            if (buffer.size() + length < threshold) {
+                buffer.write(bytes, offset, length);
+                return;
+            }
+            startCompressed();
+        }
+        out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Пока ответ в буфере, заголовки ещё не отправлены — сбрасывать нечего.
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            exchange.sendResponseHeaders(code, buffer.size() == 0 ? -1 : buffer.size());
+            out = exchange.getResponseBody();
+            buffer.writeTo(out);
+            buffer = null;
+        }
+        out.close();
+    }
+
+    private void startCompressed() throws IOException {
+        BaseHttpHandler.markGzipped(exchange);
+        exchange.sendResponseHeaders(code, 0);
+        out = new GZIPOutputStream(exchange.getResponseBody(), 8192);
+        buffer.writeTo(out);
+        buffer = null;
+    }
+}
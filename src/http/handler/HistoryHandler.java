@@ -1,51 +1,34 @@
 package http.handler;
 
-import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
-import http.HttpTaskServer;
 import manager.TaskManager;
-import models.HttpMethod;
 import models.Task;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
-public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
+public class HistoryHandler extends BaseHttpHandler {
     private final TaskManager taskManager;
-    private final Gson gson;
 
     public HistoryHandler(TaskManager tasksManager) {
         this.taskManager = tasksManager;
-        gson = HttpTaskServer.getGson();
     }
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        HttpMethod httpMethod = getHttpMethod(method);
-
-        try {
-            switch (httpMethod) {
-                case GET: {
-                    handleGet(exchange);
-                    break;
-                }
-                default: {
-                    sendMethodNotAllowed(exchange, String.format(
-                            "Обработка данного метода %s не предусмотрена", method), method);
-                }
-            }
-        } catch (Exception e) {
-            sendInternalError(exchange, e.getMessage(), method);
-        } finally {
-            exchange.close();
+    public void getHistory(HttpExchange exchange) throws IOException {
+        Map<String, String> query = getQueryParameters(exchange);
+        Integer limit = getPageLimit(query);
+        int cursor = getPageCursor(query);
+        TaskProjection projection = getProjection(query);
+        if (sendNotModified(exchange, taskManager.getHistoryVersion())) {
+            return;
+        }
+        if (limit != null) {
+            sendPage(exchange, taskManager.getHistoryPage(cursor, limit), limit, projection);
+            return;
         }
-    }
 
-    private void handleGet(HttpExchange exchange) throws IOException {
         List<Task> history = taskManager.getHistory();
-        String response = gson.toJson(history);
-        sendSuccess(exchange, response);
+        sendSuccessStream(exchange, history, projection);
     }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+package http.handler;
+
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import models.HttpMethod;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Таблица маршрутов в виде префиксного дерева по сегментам пути. Шаблон — "/epics/{id}/subtasks":
+// сегмент в фигурных скобках — целочисленный параметр, он разбирается прямо из строки пути
+// и передаётся обработчику в массиве ids. Путь проходится один раз, без split и регулярных выражений.
+// Ответы: нет маршрута — 404, нет метода — 405, параметр не число — 400.
+// Здесь же общая обработка ошибок: IllegalArgumentException и ошибки разбора JSON — 400, прочие — 500.
+public class Router extends BaseHttpHandler implements HttpHandler {
+    private static final int[] NO_IDS = new int[0];
+
+    private final Node root = new Node();
+    private int maxParameters;
+
+    @FunctionalInterface
+    public interface Route {
+        void handle(HttpExchange exchange, int[] ids) throws IOException;
+    }
+
+    private static final class Node {
+        private String[] literals = new String[0];
+        private Node[] children = new Node[0];
+        private Node parameter;
+        private final Map<HttpMethod, Route> routes = new EnumMap<>(HttpMethod.class);
+
+        private Node literal(String segment) {
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].equals(segment)) {
+                    return children[i];
+                }
+            }
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            literals[literals.length - 1] = segment;
+            children[children.length - 1] = new Node();
+            return children[children.length - 1];
+        }
+    }
+
+    public Router add(HttpMethod method, String template, Route route) {
+        Node node = root;
+        int parameters = 0;
+        for (String segment : template.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (node.parameter == null) {
+                    node.parameter = new Node();
+                }
+                node = node.parameter;
+                parameters++;
+            } else {
+                node = node.literal(segment);
+            }
+        }
+        if (node.routes.putIfAbsent(method, route) != null) {
+            throw new IllegalStateException("Маршрут уже задан: " + method + " " + template);
+        }
+        maxParameters = Math.max(maxParameters, parameters);
+        return this;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+
+        try {
+            dispatch(exchange, method, path);
+        } catch (IllegalArgumentException | JsonParseException e) {
+            sendBadRequest(exchange, e.getMessage(), path);
+        } catch (Exception e) {
+            sendInternalError(exchange, e.getMessage(), path);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange, String method, String path) throws IOException {
+        int[] ids = NO_IDS;
+        int parameterCount = 0;
+        Node node = root;
+        int length = path.length();
+        int position = 0;
+
+        while (node != null) {
+            while (position < length && path.charAt(position) == '/') {
+                position++;
+            }
+            if (position >= length) {
+                break;
+            }
+            int end = path.indexOf('/', position);
+            if (end < 0) {
+                end = length;
+            }
+
+            Node next = matchLiteral(node, path, position, end);
+            if (next == null && node.parameter != null) {
+                if (ids == NO_IDS) {
+                    ids = new int[maxParameters];
+                }
+                ids[parameterCount++] = parseID(path, position, end);
+                next = node.parameter;
+            }
+            node = next;
+            position = end;
+        }
+
+        if (node == null || node.routes.isEmpty()) {
+            sendNotFound(exchange, "Ресурс " + path + " не найден", path);
+            return;
+        }
+
+        HttpMethod httpMethod = getHttpMethod(method);
+        Route route = httpMethod != null ? node.routes.get(httpMethod) : null;
+        if (route == null) {
+            sendMethodNotAllowed(exchange, String.format("Обработка данного метода %s не предусмотрена", method),
+                    path);
+            return;
+        }
+        route.handle(exchange, ids);
+    }
+
+    private static Node matchLiteral(Node node, String path, int start, int end) {
+        int segmentLength = end - start;
+        for (int i = 0; i < node.literals.length; i++) {
+            String literal = node.literals[i];
+            if (literal.length() == segmentLength && path.regionMatches(start, literal, 0, segmentLength)) {
+                return node.children[i];
+            }
+        }
+        return null;
+    }
+
+    private static int parseID(String path, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = path.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || end - start > 10) {
+                throw new IllegalArgumentException("Некорректный формат ID: " + path.substring(start, end));
+            }
+            value = value * 10 + digit;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Некорректный формат ID: " + path.substring(start, end));
+        }
+        return (int) value;
+    }
+}
@@ -2,149 +2,122 @@ package http.handler;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 import exceptions.TaskValidationException;
 import http.HttpTaskServer;
 import manager.TaskManager;
-import models.HttpMethod;
 import models.Subtask;
+import models.TaskFilter;
 
 import java.io.IOException;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
-public class SubtasksHandler extends BaseHttpHandler implements HttpHandler {
+// Обработчики маршрутов /subtasks и /subtasks/{id}; маршруты задаются в HttpTaskServer.
+public class SubtasksHandler extends BaseHttpHandler {
     private final TaskManager taskManager;
     private final Gson gson;
 
-    public SubtasksHandler(TaskManager taskManager) {
+    public SubtasksHandler(TaskManager taskManager, TaskJsonCache jsonCache) {
+        super(jsonCache);
         this.taskManager = taskManager;
         gson = HttpTaskServer.getGson();
     }
 
+    public void getSubtask(HttpExchange exchange, int id) throws IOException {
+        Subtask subtask = taskManager.getSubtaskByID(id);
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        HttpMethod httpMethod = getHttpMethod(method);
-
-        try {
-            switch (httpMethod) {
-                case GET:
-                    handleGet(exchange);
-                    break;
-                case POST:
-                    handlePost(exchange);
-                    break;
-                case DELETE:
-                    handleDelete(exchange);
-                    break;
-                default:
-                    sendMethodNotAllowed(exchange, String.format(
-                            "Обработка данного метода %s не предусмотрена", method), method);
+        if (subtask != null) {
+            if (sendNotModified(exchange, subtask.getVersion())) {
+                return;
             }
-        } catch (Exception e) {
-            sendInternalError(exchange, e.getMessage(), method);
-        } finally {
-            exchange.close();
+            sendTask(exchange, subtask);
+        } else {
+            sendNotFound(exchange, "Сабтаск с id " + id + " не найден", exchange.getRequestURI().getPath());
         }
     }
 
-    private void handleGet(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
-
-        if (urlParts.length == 3) {
-            Integer id = getIDFromPath(urlParts[2]);
-            Subtask subtask = taskManager.getSubtaskByID(id);
-
-            if (subtask != null) {
-                String response = gson.toJson(subtask);
-                sendSuccess(exchange, response);
+    public void getSubtasks(HttpExchange exchange) throws IOException {
+        Map<String, String> query = getQueryParameters(exchange);
+        Integer limit = getPageLimit(query);
+        int cursor = getPageCursor(query);
+        TaskProjection projection = getProjection(query);
+        TaskFilter filter = getTaskFilter(query, true);
+        if (sendNotModified(exchange, taskManager.getSubtasksVersion())) {
+            return;
+        }
+        if (filter != null) {
+            List<Subtask> found = taskManager.findSubtasks(filter);
+            if (limit != null) {
+                sendPage(exchange, pageOf(found, cursor, limit), limit, projection);
             } else {
-                sendNotFound(exchange, "Сабтаск с id " + id + " не найден", path);
+                sendSuccessStream(exchange, found, projection);
             }
-        } else if (urlParts.length == 2) {
-            List<Subtask> allSubtasks = taskManager.getAllSubtasks();
-            String response = gson.toJson(allSubtasks);
-            sendSuccess(exchange, response);
-        } else {
-            sendBadRequest(exchange, "Некорректный путь", path);
+            return;
+        }
+        if (limit != null) {
+            sendPage(exchange, taskManager.getSubtasksPage(cursor, limit), limit, projection);
+            return;
         }
-    }
-
-    private void handlePost(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
 
-        byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
-        String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
-        Subtask subtask = gson.fromJson(bodyString, Subtask.class);
+        List<Subtask> allSubtasks = taskManager.getAllSubtasks();
+        sendSuccessStream(exchange, allSubtasks, projection);
+    }
 
+    public void updateSubtask(HttpExchange exchange, int id) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Subtask subtask = readSubtask(exchange);
         if (subtask == null) {
             sendBadRequest(exchange, "Неверный формат сабтаска", path);
             return;
         }
 
-        if (urlParts.length == 3) {
-            int id = getIDFromPath(urlParts[2]);
-            Subtask existingSubtask = taskManager.getSubtaskByID(id);
+        Subtask existingSubtask = taskManager.getSubtaskByID(id);
+        if (existingSubtask == null) {
+            sendNotFound(exchange, "Сабтаск с id " + id + " не найден", path);
+            return;
+        }
+
+        taskManager.updateSubtask(subtask);
+        String response = gson.toJson(taskManager.getSubtaskByID(id));
 
-            if (existingSubtask == null) {
-                sendNotFound(exchange, "Сабтаск с id " + id + " не найден", path);
-                return;
-            }
+        sendSuccess(exchange, response);
+    }
 
-            taskManager.updateSubtask(subtask);
-            String response = gson.toJson(taskManager.getSubtaskByID(id));
-
-            sendSuccess(exchange, response);
-        } else if (urlParts.length == 2) {
-            try {
-                Integer id = taskManager.addSubtask(subtask);
-
-                if (id != null) {
-                    String response = gson.toJson(taskManager.getSubtaskByID(id));
-                    sendCreated(exchange, response);
-                } else {
-                    sendNotFound(exchange, "Эпик для подзадачи не найден", path);
-                }
-            } catch (TaskValidationException e) {
-                sendHasOverlaps(exchange, e.getMessage(), path);
-            }
-        } else {
-            sendBadRequest(exchange, "Некорректный путь", path);
+    public void createSubtask(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Subtask subtask = readSubtask(exchange);
+        if (subtask == null) {
+            sendBadRequest(exchange, "Неверный формат сабтаска", path);
+            return;
         }
-    }
 
-    private void handleDelete(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
+        try {
+            Integer id = taskManager.addSubtask(subtask);
 
-        if (urlParts.length != 3) {
-            sendBadRequest(exchange, "Некорректный путь для удаления", path);
-            return;
+            if (id != null) {
+                String response = gson.toJson(taskManager.getSubtaskByID(id));
+                sendCreated(exchange, response);
+            } else {
+                sendNotFound(exchange, "Эпик для подзадачи не найден", path);
+            }
+        } catch (TaskValidationException e) {
+            sendHasOverlaps(exchange, e.getMessage(), path);
         }
+    }
 
-        Integer id = getIDFromPath(urlParts[2]);
+    public void deleteSubtask(HttpExchange exchange, int id) throws IOException {
         Subtask subtask = taskManager.deleteSubtaskByID(id);
         if (subtask != null) {
             sendSuccess(exchange, "Cабтаск с id " + id + " успешно удален!");
         } else {
-            sendNotFound(exchange, "Сабтаск с id " + id + " не найден!", path);
+            sendNotFound(exchange, "Сабтаск с id " + id + " не найден!", exchange.getRequestURI().getPath());
         }
     }
 
-    private Integer getIDFromPath(String id) {
-        try {
-            return Integer.parseInt(id);
-        } catch (NumberFormatException e) {
-            throw new RuntimeException("Некорректный формат ID: " + id);
-        }
+    private Subtask readSubtask(HttpExchange exchange) throws IOException {
+        byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
+        String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
+        return gson.fromJson(bodyString, Subtask.class);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package http.handler;
+
+import models.Task;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// JSON задач в UTF-8, готовый к записи в ответ. Запись действительна, пока это тот же объект задачи
+// с той же версией: InMemoryTaskManager меняет версию при каждом изменении задачи, так что отдельной
+// очистки кэша не нужно. Размер ограничен суммой байт, вытесняются давно не запрошенные задачи (LRU).
+// Кэш создаётся на сервер и передаётся обработчикам, которые отдают живые задачи менеджера.
+public final class TaskJsonCache {
+    // Накладные расходы записи в LinkedHashMap сверх самих байт.
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private long usedBytes;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private record Entry(Task task, long version, byte[] json) {
+    }
+
+    public TaskJsonCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Версия читается до сериализации: если задача успеет измениться, запись останется со старой версией
+    // и следующий запрос её не примет.
+    byte[] get(Task task, Function<Task, byte[]> serializer) {
+        long version = task.getVersion();
+        synchronized (this) {
+            Entry entry = entries.get(task.getID());
+            if (entry != null && entry.task() == task && entry.version() == version) {
+                return entry.json();
+            }
+        }
+
+        byte[] json = serializer.apply(task);
+        put(task, version, json);
+        return json;
+    }
+
+    private synchronized void put(Task task, long version, byte[] json) {
+        long size = json.length + ENTRY_OVERHEAD;
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(task.getID(), new Entry(task, version, json));
+        if (previous != null) {
+            usedBytes -= previous.json().length + ENTRY_OVERHEAD;
+        }
+        usedBytes += size;
+
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Integer, Entry> eldest = iterator.next();
+            usedBytes -= eldest.getValue().json().length + ENTRY_OVERHEAD;
+            iterator.remove();
+        }
+    }
+}
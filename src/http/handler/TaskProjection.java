@@ -0,0 +1,123 @@
+package http.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import models.Epic;
+import models.Subtask;
+import models.Task;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Частичное представление задачи для параметра fields=id,name,status.
+// Задача пишется напрямую в JsonWriter без рефлексии Gson; адаптеры даты и длительности
+// вызываются только для запрошенных полей. Как и Gson, пустые (null) поля не пишутся.
+final class TaskProjection {
+    enum Field {
+        ID("id"),
+        NAME("name"),
+        DESCRIPTION("description"),
+        STATUS("status"),
+        START_TIME("startTime"),
+        DURATION("duration"),
+        END_TIME("endTime"),
+        EPIC_ID("epicID"),
+        SUBTASK_IDS("subtaskIDs");
+
+        private final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    private final Set<Field> fields;
+    private final TypeAdapter<LocalDateTime> dateTimeAdapter;
+    private final TypeAdapter<Duration> durationAdapter;
+
+    private TaskProjection(Set<Field> fields, Gson gson) {
+        this.fields = fields;
+        this.dateTimeAdapter = gson.getAdapter(LocalDateTime.class);
+        this.durationAdapter = gson.getAdapter(Duration.class);
+    }
+
+    static TaskProjection parse(String value, Gson gson) {
+        Set<Field> fields = EnumSet.noneOf(Field.class);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            fields.add(field(trimmed));
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Параметр fields не содержит ни одного поля");
+        }
+        return new TaskProjection(fields, gson);
+    }
+
+    private static Field field(String jsonName) {
+        for (Field field : Field.values()) {
+            if (field.jsonName.equals(jsonName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное поле в параметре fields: " + jsonName);
+    }
+
+    void write(JsonWriter writer, Task task) throws IOException {
+        writer.beginObject();
+        for (Field field : fields) {
+            switch (field) {
+                case ID -> writer.name("id").value(task.getID());
+                case NAME -> writeString(writer, "name", task.getName());
+                case DESCRIPTION -> writeString(writer, "description", task.getDescription());
+                case STATUS -> {
+                    if (task.getStatus() != null) {
+                        writer.name("status").value(task.getStatus().name());
+                    }
+                }
+                case START_TIME -> writeDateTime(writer, "startTime", task.getStartTime());
+                case DURATION -> {
+                    if (task.getDuration() != null) {
+                        writer.name("duration");
+                        durationAdapter.write(writer, task.getDuration());
+                    }
+                }
+                case END_TIME -> writeDateTime(writer, "endTime", task.getEndTime());
+                case EPIC_ID -> {
+                    if (task instanceof Subtask subtask) {
+                        writer.name("epicID").value(subtask.getEpicID());
+                    }
+                }
+                case SUBTASK_IDS -> {
+                    if (task instanceof Epic epic && epic.getSubtaskIDs() != null) {
+                        writer.name("subtaskIDs").beginArray();
+                        for (Integer subtaskID : epic.getSubtaskIDs()) {
+                            writer.value(subtaskID);
+                        }
+                        writer.endArray();
+                    }
+                }
+            }
+        }
+        writer.endObject();
+    }
+
+    private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private void writeDateTime(JsonWriter writer, String name, LocalDateTime value) throws IOException {
+        if (value != null) {
+            writer.name(name);
+            dateTimeAdapter.write(writer, value);
+        }
+    }
+}
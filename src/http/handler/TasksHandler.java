@@ -2,141 +2,117 @@ package http.handler;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 import exceptions.TaskValidationException;
 import http.HttpTaskServer;
 import manager.TaskManager;
-import models.HttpMethod;
 import models.Task;
+import models.TaskFilter;
 
 import java.io.IOException;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
-public class TasksHandler extends BaseHttpHandler implements HttpHandler {
+// Обработчики маршрутов /tasks и /tasks/{id}; маршруты задаются в HttpTaskServer.
+public class TasksHandler extends BaseHttpHandler {
 
     private final TaskManager taskManager;
     private final Gson gson;
 
-    public TasksHandler(TaskManager taskManager) {
+    public TasksHandler(TaskManager taskManager, TaskJsonCache jsonCache) {
+        super(jsonCache);
         this.taskManager = taskManager;
         gson = HttpTaskServer.getGson();
     }
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        HttpMethod httpMethod = getHttpMethod(method);
+    public void getTask(HttpExchange exchange, int id) throws IOException {
+        Task task = taskManager.getTaskByID(id);
 
-        try {
-            switch (httpMethod) {
-                case GET:
-                    handleGet(exchange);
-                    break;
-                case POST:
-                    handlePost(exchange);
-                    break;
-                case DELETE:
-                    handleDelete(exchange);
-                    break;
-                default:
-                    sendMethodNotAllowed(exchange, String.format("Обработка данного метода %s не предусмотрена", method), method);
+        if (task != null) {
+            if (sendNotModified(exchange, task.getVersion())) {
+                return;
             }
-        } catch (Exception e) {
-            sendInternalError(exchange, e.getMessage(), method);
-
-        } finally {
-            exchange.close();
+            sendTask(exchange, task);
+        } else {
+            sendNotFound(exchange, "Задача с id " + id + " не найдена", exchange.getRequestURI().getPath());
         }
     }
 
-    private void handleGet(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
-
-        if (urlParts.length == 3) {
-            Integer id = getIDFromPath(urlParts[2]);
-            Task task = taskManager.getTaskByID(id);
-
-            if (task != null) {
-                String response = gson.toJson(task);
-                sendSuccess(exchange, response);
+    public void getTasks(HttpExchange exchange) throws IOException {
+        Map<String, String> query = getQueryParameters(exchange);
+        Integer limit = getPageLimit(query);
+        int cursor = getPageCursor(query);
+        TaskProjection projection = getProjection(query);
+        TaskFilter filter = getTaskFilter(query, false);
+        if (sendNotModified(exchange, taskManager.getTasksVersion())) {
+            return;
+        }
+        if (filter != null) {
+            List<Task> found = taskManager.findTasks(filter);
+            if (limit != null) {
+                sendPage(exchange, pageOf(found, cursor, limit), limit, projection);
             } else {
-                sendNotFound(exchange, "Задача с id " + id + " не найдена", path);
+                sendSuccessStream(exchange, found, projection);
             }
-        } else if (urlParts.length == 2) {
-            List<Task> allTasks = taskManager.getAllTasks();
-            String response = gson.toJson(allTasks);
-            sendSuccess(exchange, response);
-        } else {
-            sendBadRequest(exchange, "Неверный формат задачи", path);
+            return;
+        }
+        if (limit != null) {
+            sendPage(exchange, taskManager.getTasksPage(cursor, limit), limit, projection);
+            return;
         }
-    }
-
-    private void handlePost(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
 
-        byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
-        String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
-        Task task = gson.fromJson(bodyString, Task.class);
+        List<Task> allTasks = taskManager.getAllTasks();
+        sendSuccessStream(exchange, allTasks, projection);
+    }
 
+    public void updateTask(HttpExchange exchange, int id) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Task task = readTask(exchange);
         if (task == null) {
             sendBadRequest(exchange, "Неверный формат задачи", path);
+            return;
         }
 
-        if (urlParts.length == 3) {
-            int id = getIDFromPath(urlParts[2]);
-            Task existingTask = taskManager.getTaskByID(id);
-
-            if (existingTask == null) {
-                sendNotFound(exchange, "Задача с id " + id + " не найдена", path);
-            }
-
-            taskManager.updateTask(task);
-            String response = gson.toJson(taskManager.getTaskByID(id));
-            sendSuccess(exchange, response);
-        } else if (urlParts.length == 2) {
-            try {
-                int id = taskManager.addTask(task);
-                String response = gson.toJson(taskManager.getTaskByID(id));
-                sendCreated(exchange, response);
-            } catch (TaskValidationException e) {
-                sendHasOverlaps(exchange, e.getMessage(), path);
-            }
-        } else {
-            sendBadRequest(exchange, "Некорректный путь", path);
+        Task existingTask = taskManager.getTaskByID(id);
+        if (existingTask == null) {
+            sendNotFound(exchange, "Задача с id " + id + " не найдена", path);
+            return;
         }
-    }
 
-    private void handleDelete(HttpExchange exchange) throws IOException {
-        URI requestURI = exchange.getRequestURI();
-        String path = requestURI.getPath();
-        String[] urlParts = path.split("/");
+        taskManager.updateTask(task);
+        String response = gson.toJson(taskManager.getTaskByID(id));
+        sendSuccess(exchange, response);
+    }
 
-        if (urlParts.length != 3) {
-            sendBadRequest(exchange, "Некорректный путь для удаления", path);
+    public void createTask(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Task task = readTask(exchange);
+        if (task == null) {
+            sendBadRequest(exchange, "Неверный формат задачи", path);
             return;
         }
 
-        Integer id = getIDFromPath(urlParts[2]);
+        try {
+            int id = taskManager.addTask(task);
+            String response = gson.toJson(taskManager.getTaskByID(id));
+            sendCreated(exchange, response);
+        } catch (TaskValidationException e) {
+            sendHasOverlaps(exchange, e.getMessage(), path);
+        }
+    }
+
+    public void deleteTask(HttpExchange exchange, int id) throws IOException {
         Task task = taskManager.deleteTaskByID(id);
         if (task != null) {
             sendSuccess(exchange, "Задача с id " + id + " успешно удалена!");
         } else {
-            sendNotFound(exchange, "Задача с id " + id + " не найдена!", path);
+            sendNotFound(exchange, "Задача с id " + id + " не найдена!", exchange.getRequestURI().getPath());
         }
     }
 
-    private Integer getIDFromPath(String id) {
-        try {
-            return Integer.parseInt(id);
-        } catch (NumberFormatException e) {
-            throw new RuntimeException("Некорректный формат ID: " + id);
-        }
+    private Task readTask(HttpExchange exchange) throws IOException {
+        byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
+        String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
+        return gson.fromJson(bodyString, Task.class);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,295 @@
+package manager;
+
+import models.Epic;
+import models.Status;
+import models.Subtask;
+import models.Task;
+import models.TaskType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Двоичный снимок задач:
+//   magic "KNBN", версия формата (1 байт)
+//   таблица строк: varint количество, затем для каждой строки varint длина и байты UTF-8
+//   varint количество записей, затем записи:
+//     тип (ordinal TaskType), статус (ordinal Status), флаги (1 — есть startTime, 2 — есть duration),
+//     varint id, varint индекс name, varint индекс description (0 — null, иначе индекс + 1),
+//     [varlong startTime в минутах от эпохи, zigzag], [varlong duration в минутах], [varint epicID у подзадачи]
+public final class BinaryTaskFormat {
+    private static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    private static final byte VERSION = 1;
+    private static final int FLAG_START_TIME = 1;
+    private static final int FLAG_DURATION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    public static boolean isBinary(ByteBuffer header) {
+        if (header.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(header.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void write(Path target, List<Task> allTasks, boolean sync) throws IOException {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Task task : allTasks) {
+            indexString(task.getName(), stringIndexes, strings);
+            indexString(task.getDescription(), stringIndexes, strings);
+        }
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter writer = new ChannelWriter(channel);
+            writer.writeBytes(MAGIC);
+            writer.writeByte(VERSION);
+
+            writer.writeVarLong(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writer.writeVarLong(bytes.length);
+                writer.writeBytes(bytes);
+            }
+
+            writer.writeVarLong(allTasks.size());
+            for (Task task : allTasks) {
+                writeTask(writer, task, stringIndexes);
+            }
+            writer.flush();
+
+            if (sync) {
+                channel.force(true);
+            }
+        }
+    }
+
+    private static void indexString(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (string != null && !stringIndexes.containsKey(string)) {
+            stringIndexes.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static void writeTask(ChannelWriter writer, Task task, Map<String, Integer> stringIndexes)
+            throws IOException {
+        int flags = (task.getStartTime() != null ? FLAG_START_TIME : 0) |
+                (task.getDuration() != null ? FLAG_DURATION : 0);
+
+        writer.writeByte(task.getType().ordinal());
+        writer.writeByte(task.getStatus().ordinal());
+        writer.writeByte(flags);
+        writer.writeVarLong(task.getID());
+        writer.writeVarLong(stringReference(task.getName(), stringIndexes));
+        writer.writeVarLong(stringReference(task.getDescription(), stringIndexes));
+        if (task.getStartTime() != null) {
+            long epochMinute = task.getStartTime().toEpochSecond(ZoneOffset.UTC) / 60;
+            writer.writeVarLong((epochMinute << 1) ^ (epochMinute >> 63));
+        }
+        if (task.getDuration() != null) {
+            writer.writeVarLong(task.getDuration().toMinutes());
+        }
+        if (task instanceof Subtask subtask) {
+            writer.writeVarLong(subtask.getEpicID());
+        }
+    }
+
+    private static int stringReference(String string, Map<String, Integer> stringIndexes) {
+        return string == null ? 0 : stringIndexes.get(string) + 1;
+    }
+
+    public static List<Task> read(ByteBuffer buffer) {
+        return read(buffer, null);
+    }
+
+    // Если передан lazyTasks, простые задачи без startTime не создаются: в индекс попадает только смещение записи.
+    // Эпики, подзадачи и задачи со временем нужны сразу — для статусов эпиков и списка приоритетов.
+    static List<Task> read(ByteBuffer buffer, LazyTaskMap lazyTasks) {
+        buffer.position(buffer.position() + MAGIC.length);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия двоичного снимка: " + version);
+        }
+
+        int[] stringOffsets = new int[(int) readVarLong(buffer)];
+        for (int i = 0; i < stringOffsets.length; i++) {
+            stringOffsets[i] = buffer.position();
+            int length = (int) readVarLong(buffer);
+            buffer.position(buffer.position() + length);
+        }
+        StringTable strings = new StringTable(buffer.duplicate(), stringOffsets, lazyTasks == null);
+
+        int count = (int) readVarLong(buffer);
+        List<Task> allTasks = new ArrayList<>(lazyTasks == null ? count : 0);
+        for (int i = 0; i < count; i++) {
+            int offset = buffer.position();
+            if (lazyTasks != null && buffer.get(offset) == TaskType.TASK.ordinal()
+                    && (buffer.get(offset + 2) & FLAG_START_TIME) == 0) {
+                lazyTasks.index(skipTask(buffer), offset);
+            } else {
+                allTasks.add(readTask(buffer, strings));
+            }
+        }
+        if (lazyTasks != null) {
+            lazyTasks.attach(buffer, strings);
+        }
+        return allTasks;
+    }
+
+    static Task readTask(ByteBuffer buffer, StringTable strings) {
+        TaskType taskType = TASK_TYPES[buffer.get()];
+        Status status = STATUSES[buffer.get()];
+        int flags = buffer.get();
+        int id = (int) readVarLong(buffer);
+        String name = strings.get(readVarLong(buffer));
+        String description = strings.get(readVarLong(buffer));
+
+        LocalDateTime startTime = null;
+        if ((flags & FLAG_START_TIME) != 0) {
+            long zigzag = readVarLong(buffer);
+            long epochMinute = (zigzag >>> 1) ^ -(zigzag & 1);
+            startTime = LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+        }
+        Duration duration = (flags & FLAG_DURATION) != 0 ? Duration.ofMinutes(readVarLong(buffer)) : null;
+
+        Task task = switch (taskType) {
+            case TASK -> new Task(name, description, status);
+            case EPIC -> new Epic(name, description, status);
+            case SUBTASK -> new Subtask(name, description, status, (int) readVarLong(buffer));
+        };
+        task.setID(id);
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    // Пропускает запись, не создавая объектов. Возвращает id задачи.
+    private static int skipTask(ByteBuffer buffer) {
+        TaskType taskType = TASK_TYPES[buffer.get()];
+        buffer.get();
+        int flags = buffer.get();
+        int id = (int) readVarLong(buffer);
+        readVarLong(buffer);
+        readVarLong(buffer);
+        if ((flags & FLAG_START_TIME) != 0) {
+            readVarLong(buffer);
+        }
+        if ((flags & FLAG_DURATION) != 0) {
+            readVarLong(buffer);
+        }
+        if (taskType == TaskType.SUBTASK) {
+            readVarLong(buffer);
+        }
+        return id;
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    // Таблица строк снимка: строка декодируется из буфера при первом обращении.
+    // При ленивой загрузке декодированные строки не кешируются, чтобы не держать их в памяти.
+    static final class StringTable {
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private final String[] cache;
+
+        private StringTable(ByteBuffer buffer, int[] offsets, boolean cached) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.cache = cached ? new String[offsets.length] : null;
+        }
+
+        String get(long reference) {
+            if (reference == 0) {
+                return null;
+            }
+            int index = (int) reference - 1;
+            if (cache != null && cache[index] != null) {
+                return cache[index];
+            }
+
+            ByteBuffer source = buffer.duplicate().position(offsets[index]);
+            byte[] bytes = new byte[(int) readVarLong(source)];
+            source.get(bytes);
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            if (cache != null) {
+                cache[index] = string;
+            }
+            return string;
+        }
+    }
+
+    // Буферизованная запись в канал без промежуточного массива на весь файл.
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -1,16 +1,13 @@
 package manager;
 
-import models.Status;
 import models.Task;
-import models.Epic;
 import models.Subtask;
 import models.TaskType;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public final class CSVTaskFormat {
+    static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yy: HH:mm");
 
     public static String getHeader() {
         return "id,type,name,status,description,startTime,duration,epic";
@@ -25,38 +22,7 @@ public final class CSVTaskFormat {
     }
 
     public static Task createTaskFromString(String csvLine) {
-        String[] fields = csvLine.split(",");
-        String name = fields[2];
-        String description = fields[4];
-        Status status = Status.NEW;
-
-        status = switch (fields[3]) {
-            case "IN_PROGRESS" -> Status.IN_PROGRESS;
-            case "DONE" -> Status.DONE;
-            default -> status;
-        };
-
-        TaskType taskType = determineTaskTypeFromString(fields[1]);
-        Task task = switch (taskType) {
-            case TASK -> new Task(name, description, status);
-            case EPIC -> new Epic(name, description, status);
-            case SUBTASK -> {
-                int epicID = Integer.parseInt(fields[7]);
-
-                yield new Subtask(name, description, status, epicID);
-            }
-        };
-        if (!fields[5].equals("-")) {
-            LocalDateTime startTime = LocalDateTime.parse(fields[5], DateTimeFormatter.ofPattern("dd.MM.yy: HH:mm"));
-            task.setStartTime(startTime);
-        }
-
-        if (!fields[6].equals("-")) {
-            Duration duration = Duration.ofMinutes(Long.parseLong(fields[6]));
-            task.setDuration(duration);
-        }
-
-        return task;
+        return new CSVTaskReader(csvLine).next();
     }
 
     public static TaskType determineTaskType(Task task) {
@@ -68,10 +34,8 @@ public final class CSVTaskFormat {
     }
 
     private static String createStringFromTask(Task task, TaskType taskType) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yy: HH:mm");
-
         String startTime = task.getStartTime() != null ?
-                task.getStartTime().format(formatter) : "-";
+                task.getStartTime().format(DATE_TIME_FORMATTER) : "-";
 
         String duration = task.getDuration() != null ?
                 String.valueOf(task.getDuration().toMinutes()) : "-";
@@ -81,9 +45,9 @@ public final class CSVTaskFormat {
         return String.join(",",
                 String.valueOf(task.getID()),
                 taskType.name(),
-                task.getName(),
+                quote(task.getName()),
                 task.getStatus().name(),
-                task.getDescription(),
+                quote(task.getDescription()),
                 startTime,
                 duration,
                 epic
@@ -91,10 +55,8 @@ public final class CSVTaskFormat {
     }
 
     private static String createSubtaskString(Subtask subtask, TaskType taskType) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yy: HH:mm");
-
         String startTime = subtask.getStartTime() != null ?
-                subtask.getStartTime().format(formatter) : "-";
+                subtask.getStartTime().format(DATE_TIME_FORMATTER) : "-";
 
         String duration = subtask.getDuration() != null ?
                 String.valueOf(subtask.getDuration().toMinutes()) : "-";
@@ -102,12 +64,26 @@ public final class CSVTaskFormat {
         return String.join(",",
                 String.valueOf(subtask.getID()),
                 taskType.name(),
-                subtask.getName(),
+                quote(subtask.getName()),
                 subtask.getStatus().name(),
-                subtask.getDescription(),
+                quote(subtask.getDescription()),
                 startTime,
                 duration,
                 String.valueOf(subtask.getEpicID())
         );
     }
+
+    // Поле с запятой, кавычкой или переводом строки заключается в кавычки, кавычки внутри удваиваются.
+    private static String quote(String field) {
+        if (field == null) {
+            return "null";
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char current = field.charAt(i);
+            if (current == ',' || current == '"' || current == '\n' || current == '\r') {
+                return '"' + field.replace("\"", "\"\"") + '"';
+            }
+        }
+        return field;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package manager;
+
+import models.Epic;
+import models.Status;
+import models.Subtask;
+import models.Task;
+import models.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Потоковый разбор CSV: один проход по символам без split и промежуточных подстрок.
+// Поле в кавычках может содержать запятые и переводы строк, кавычка внутри него удваивается.
+// Строки создаются только для name и description, id, минуты и дата разбираются прямо из входа.
+public final class CSVTaskReader {
+    private static final int FIELD_COUNT = 8;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+
+    private final CharSequence input;
+    private int position;
+    private final int[] starts = new int[FIELD_COUNT];
+    private final int[] ends = new int[FIELD_COUNT];
+    private final boolean[] escaped = new boolean[FIELD_COUNT];
+    private final StringBuilder value = new StringBuilder();
+
+    public CSVTaskReader(CharSequence input) {
+        this(input, 0);
+    }
+
+    public CSVTaskReader(CharSequence input, int start) {
+        this.input = input;
+        this.position = start;
+    }
+
+    public void skipLine() {
+        while (position < input.length() && input.charAt(position++) != '\n') {
+        }
+    }
+
+    // Возвращает следующую задачу с установленным id или null, если вход закончился. Пустые строки пропускаются.
+    public Task next() {
+        while (position < input.length()) {
+            int fields = readRecord();
+            if (fields == 1 && isBlank(0)) {
+                continue;
+            }
+            // Поле epic обязательно только для подзадачи; у задачи и эпика его может не быть.
+            if (fields < FIELD_COUNT - 1 || (fields < FIELD_COUNT && taskType() == TaskType.SUBTASK)) {
+                throw new IllegalArgumentException("Некорректная строка CSV: ожидалось " + FIELD_COUNT +
+                        " полей, получено " + fields);
+            }
+            // Границы отсутствующих полей не должны остаться от предыдущей записи.
+            for (int field = fields; field < FIELD_COUNT; field++) {
+                starts[field] = position;
+                ends[field] = position;
+                escaped[field] = false;
+            }
+            return createTask();
+        }
+        return null;
+    }
+
+    private Task createTask() {
+        String name = string(2);
+        String description = string(4);
+        Status status = Status.NEW;
+        if (fieldEquals(3, "IN_PROGRESS")) {
+            status = Status.IN_PROGRESS;
+        } else if (fieldEquals(3, "DONE")) {
+            status = Status.DONE;
+        }
+
+        Task task = switch (taskType()) {
+            case TASK -> new Task(name, description, status);
+            case EPIC -> new Epic(name, description, status);
+            case SUBTASK -> new Subtask(name, description, status, (int) number(7));
+        };
+        task.setID((int) number(0));
+        if (!fieldEquals(5, "-")) {
+            task.setStartTime(dateTime(5));
+        }
+        if (!fieldEquals(6, "-")) {
+            task.setDuration(Duration.ofMinutes(number(6)));
+        }
+        return task;
+    }
+
+    // Читает одну запись до конца строки, запоминая границы полей. Возвращает количество полей.
+    private int readRecord() {
+        int length = input.length();
+        int field = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean hasEscapes = false;
+            if (position < length && input.charAt(position) == '"') {
+                start = ++position;
+                while (true) {
+                    if (position >= length) {
+                        throw new IllegalArgumentException("Некорректная строка CSV: незакрытая кавычка");
+                    }
+                    if (input.charAt(position) == '"') {
+                        if (position + 1 < length && input.charAt(position + 1) == '"') {
+                            hasEscapes = true;
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                end = position++;
+            } else {
+                start = position;
+                while (position < length) {
+                    char current = input.charAt(position);
+                    if (current == ',' || current == '\n' || current == '\r') {
+                        break;
+                    }
+                    position++;
+                }
+                end = position;
+            }
+
+            if (field < FIELD_COUNT) {
+                starts[field] = start;
+                ends[field] = end;
+                escaped[field] = hasEscapes;
+            }
+            field++;
+
+            if (position >= length) {
+                return field;
+            }
+            char separator = input.charAt(position++);
+            if (separator == ',') {
+                continue;
+            }
+            if (separator == '\r' && position < length && input.charAt(position) == '\n') {
+                position++;
+            } else if (separator != '\n' && separator != '\r') {
+                throw new IllegalArgumentException("Некорректная строка CSV: текст после закрывающей кавычки");
+            }
+            return field;
+        }
+    }
+
+    private String string(int field) {
+        value.setLength(0);
+        if (!escaped[field]) {
+            value.append(input, starts[field], ends[field]);
+            return value.toString();
+        }
+
+        for (int i = starts[field]; i < ends[field]; i++) {
+            char current = input.charAt(i);
+            value.append(current);
+            if (current == '"') {
+                i++;
+            }
+        }
+        return value.toString();
+    }
+
+    private boolean fieldEquals(int field, String expected) {
+        int start = starts[field];
+        if (ends[field] - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (input.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBlank(int field) {
+        for (int i = starts[field]; i < ends[field]; i++) {
+            if (!Character.isWhitespace(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private TaskType taskType() {
+        for (TaskType taskType : TASK_TYPES) {
+            if (fieldEquals(1, taskType.name())) {
+                return taskType;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный тип задачи: " + string(1));
+    }
+
+    private long number(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        if (start == end) {
+            throw new NumberFormatException("Пустое числовое поле");
+        }
+
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + string(field) + "\"");
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    // Формат "dd.MM.yy: HH:mm" разбирается по позициям; всё остальное — через общий форматтер.
+    private LocalDateTime dateTime(int field) {
+        int start = starts[field];
+        if (ends[field] - start == 15 && input.charAt(start + 2) == '.' && input.charAt(start + 5) == '.'
+                && input.charAt(start + 8) == ':' && input.charAt(start + 9) == ' '
+                && input.charAt(start + 12) == ':') {
+            int day = twoDigits(start);
+            int month = twoDigits(start + 3);
+            int year = twoDigits(start + 6);
+            int hour = twoDigits(start + 10);
+            int minute = twoDigits(start + 13);
+            if ((day | month | year | hour | minute) >= 0) {
+                return LocalDateTime.of(2000 + year, month, day, hour, minute);
+            }
+        }
+        return LocalDateTime.parse(string(field), CSVTaskFormat.DATE_TIME_FORMATTER);
+    }
+
+    private int twoDigits(int index) {
+        int high = input.charAt(index) - '0';
+        int low = input.charAt(index + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+}
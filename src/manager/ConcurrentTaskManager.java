@@ -0,0 +1,236 @@
+package manager;
+
+import models.BatchOperation;
+import models.BatchResult;
+import models.Epic;
+import models.Subtask;
+import models.Task;
+import models.TaskFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Потокобезопасная обёртка над любым TaskManager.
+// Чтение списков идёт под общей блокировкой чтения и не блокирует другие чтения.
+// Получение задачи по id меняет историю просмотров, поэтому выполняется под блокировкой записи.
+// Обёртка не ждёт диска: кому нужна надёжность, вызывает awaitDurable() сам, уже без блокировки.
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager taskManager;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public ConcurrentTaskManager(TaskManager taskManager) {
+        this.taskManager = taskManager;
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public int addTask(Task task) {
+        return write(() -> taskManager.addTask(task));
+    }
+
+    @Override
+    public int addEpic(Epic epic) {
+        return write(() -> taskManager.addEpic(epic));
+    }
+
+    @Override
+    public Integer addSubtask(Subtask subtask) {
+        return write(() -> taskManager.addSubtask(subtask));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(taskManager::getAllTasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return read(taskManager::getAllEpics);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return read(taskManager::getAllSubtasks);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(taskManager::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(taskManager::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(taskManager::deleteAllSubtasks);
+    }
+
+    @Override
+    public Task getTaskByID(int id) {
+        return write(() -> taskManager.getTaskByID(id));
+    }
+
+    @Override
+    public Epic getEpicByID(int id) {
+        return write(() -> taskManager.getEpicByID(id));
+    }
+
+    @Override
+    public Subtask getSubtaskByID(int id) {
+        return write(() -> taskManager.getSubtaskByID(id));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> taskManager.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> taskManager.updateEpic(epic));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        write(() -> taskManager.updateSubtask(subtask));
+    }
+
+    @Override
+    public Task deleteTaskByID(int id) {
+        return write(() -> taskManager.deleteTaskByID(id));
+    }
+
+    @Override
+    public Epic deleteEpicByID(int id) {
+        return write(() -> taskManager.deleteEpicByID(id));
+    }
+
+    @Override
+    public Subtask deleteSubtaskByID(int id) {
+        return write(() -> taskManager.deleteSubtaskByID(id));
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksByEpic(int idEpic) {
+        return write(() -> taskManager.getSubtasksByEpic(idEpic));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(taskManager::getHistory);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(taskManager::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getTasksPage(int afterID, int limit) {
+        return read(() -> taskManager.getTasksPage(afterID, limit));
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int afterID, int limit) {
+        return read(() -> taskManager.getEpicsPage(afterID, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int afterID, int limit) {
+        return read(() -> taskManager.getSubtasksPage(afterID, limit));
+    }
+
+    @Override
+    public List<Task> getHistoryPage(int afterID, int limit) {
+        return read(() -> taskManager.getHistoryPage(afterID, limit));
+    }
+
+    // Индексы строятся при первом запросе, поэтому выборка идёт под блокировкой записи.
+    @Override
+    public List<Task> findTasks(TaskFilter filter) {
+        return write(() -> taskManager.findTasks(filter));
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskFilter filter) {
+        return write(() -> taskManager.findEpics(filter));
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskFilter filter) {
+        return write(() -> taskManager.findSubtasks(filter));
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        return write(() -> taskManager.applyBatch(operations));
+    }
+
+    // Версии хранятся в volatile-полях и читаются без блокировки.
+    @Override
+    public long getTasksVersion() {
+        return taskManager.getTasksVersion();
+    }
+
+    @Override
+    public long getEpicsVersion() {
+        return taskManager.getEpicsVersion();
+    }
+
+    @Override
+    public long getSubtasksVersion() {
+        return taskManager.getSubtasksVersion();
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return taskManager.getHistoryVersion();
+    }
+
+    @Override
+    public long getPrioritizedVersion() {
+        return taskManager.getPrioritizedVersion();
+    }
+
+    private <R> R read(Supplier<R> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable() {
+        taskManager.awaitDurable();
+    }
+
+    private <R> R write(Supplier<R> action) {
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package manager;
+
+// ASYNC — запись остаётся в буферах ОС, когда она попадёт на диск, решает ОС.
+// GROUP_COMMIT — один FileChannel.force на группу записей: раз в интервал или при наборе пачки.
+//   Операция не ждёт диска сама; вызывающий, которому нужна надёжность, вызывает awaitDurable(),
+//   и тот ждёт force, покрывающего запись.
+// FSYNC — force после каждой операции.
+public enum Durability {
+    ASYNC,
+    GROUP_COMMIT,
+    FSYNC
+}
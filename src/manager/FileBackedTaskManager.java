@@ -2,6 +2,8 @@ package manager;
 
 import exceptions.FileInitializationException;
 import exceptions.ManagerSaveException;
+import models.BatchOperation;
+import models.BatchResult;
 import models.Epic;
 import models.Status;
 import models.Subtask;
@@ -10,17 +12,173 @@ import models.TaskType;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    private static final long DEFAULT_MAX_JOURNAL_BYTES = 16L * 1024 * 1024;
+    private static final long DEFAULT_MAX_JOURNAL_RECORDS = 100_000;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final String SHARD_MANIFEST_MAGIC = "KNSH";
+
     private final File file;
+    private final PersistenceMode persistenceMode;
+    private final Durability durability;
+    private volatile SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private volatile SnapshotLayout snapshotLayout = SnapshotLayout.SINGLE_FILE;
+    // Поколение файлов по типам, на которое указывает манифест (0 — файлов по типам нет).
+    private final Object shardLock = new Object();
+    private long shardGeneration;
+    private TaskJournal journal;
+    // Для PAGED: файл записей и id задач, изменённых текущей операцией.
+    private TaskPageFile pageFile;
+    private final Set<Integer> dirtyIDs = new HashSet<>();
+    // Номер последней записи журнала, сделанной текущим потоком, — для awaitDurable().
+    private final ThreadLocal<Long> lastSequence = ThreadLocal.withInitial(() -> 0L);
+    private long maxJournalBytes = DEFAULT_MAX_JOURNAL_BYTES;
+    private long maxJournalRecords = DEFAULT_MAX_JOURNAL_RECORDS;
+    private ExecutorService compactionExecutor;
+    private Future<?> compaction;
+
+    // Изменения задач и снятие снимка состояния фоновым потоком идут под stateLock.
+    private final Object stateLock = new Object();
+    // Для ASYNC_SNAPSHOT: версия состояния растёт при каждом изменении, persistedVersion — версия на диске.
+    private final Object flushLock = new Object();
+    private long version;
+    private long persistedVersion;
+    // Число завершённых фоновых попыток записи снимка — по нему awaitDurable() ждёт ближайшую попытку.
+    private long flushRound;
+    // Во время applyBatch сохранение откладывается до конца пакета: записи журнала копятся в batchRecords,
+    // в PAGED копятся dirtyIDs, снимок помечается batchDirty.
+    private boolean inBatch;
+    private final List<String> batchRecords = new ArrayList<>();
+    private boolean batchDirty;
+    private ScheduledExecutorService flusher;
+    private ScheduledFuture<?> flushTask;
+    private Thread shutdownHook;
 
     public FileBackedTaskManager(File file, HistoryManager historyManager) {
+        this(file, historyManager, PersistenceMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, HistoryManager historyManager, PersistenceMode persistenceMode) {
+        this(file, historyManager, persistenceMode, Durability.ASYNC);
+    }
+
+    // В режиме JOURNAL новый менеджер начинает с пустого снимка и пустого журнала.
+    public FileBackedTaskManager(File file, HistoryManager historyManager, PersistenceMode persistenceMode,
+                                 Durability durability) {
+        this(file, historyManager, persistenceMode, durability, true);
+    }
+
+    private FileBackedTaskManager(File file, HistoryManager historyManager, PersistenceMode persistenceMode,
+                                  Durability durability, boolean fresh) {
         super(historyManager);
         this.file = file;
+        this.persistenceMode = persistenceMode;
+        this.durability = durability;
+
+        if (persistenceMode == PersistenceMode.JOURNAL) {
+            journal = new TaskJournal(journalPath(file), durability);
+            if (fresh) {
+                save();
+                journal.reset();
+                try {
+                    Files.deleteIfExists(compactingJournalPath(file));
+                } catch (IOException exc) {
+                    throw new FileInitializationException("Ошибка очистки журнала: " + exc.getMessage());
+                }
+            }
+        } else if (persistenceMode == PersistenceMode.PAGED) {
+            pageFile = new TaskPageFile(file.toPath(), durability != Durability.ASYNC);
+            if (fresh) {
+                pageFile.reset();
+            }
+        } else if (persistenceMode == PersistenceMode.ASYNC_SNAPSHOT) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduleFlush(DEFAULT_FLUSH_INTERVAL_MILLIS);
+            shutdownHook = new Thread(this::flushSnapshot, "snapshot-flush-on-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+    }
+
+    static Path journalPath(File file) {
+        return Path.of(file.getPath() + ".log");
+    }
+
+    static Path compactingJournalPath(File file) {
+        return Path.of(file.getPath() + ".log.old");
+    }
+
+    static Path shardPath(File file, long generation, TaskType taskType) {
+        return Path.of(file.getPath() + "." + generation + "." + taskType.name().toLowerCase());
+    }
+
+    // Формат следующих снимков. При загрузке формат определяется по содержимому файла.
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    // Раскладка следующих снимков. При загрузке определяется по основному файлу.
+    public void setSnapshotLayout(SnapshotLayout snapshotLayout) {
+        this.snapshotLayout = snapshotLayout;
+    }
+
+    // Для Durability.GROUP_COMMIT: максимальная задержка фиксации и размер пачки записей.
+    public void setGroupCommit(long intervalMillis, int maxRecords) {
+        if (journal != null) {
+            journal.setGroupCommit(intervalMillis, maxRecords);
+        }
+    }
+
+    // Для ASYNC_SNAPSHOT: как часто фоновый поток записывает накопленные изменения одним снимком.
+    public void setFlushInterval(long intervalMillis) {
+        if (flusher != null) {
+            scheduleFlush(intervalMillis);
+        }
+    }
+
+    private void scheduleFlush(long intervalMillis) {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flushTask = flusher.scheduleWithFixedDelay(this::flushInBackground, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Сжатие журнала запускается, когда он превышает любой из порогов.
+    public void setCompactionThresholds(long maxJournalBytes, long maxJournalRecords) {
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxJournalRecords = maxJournalRecords;
     }
 
     public static void main(String[] args) throws IOException {
@@ -72,32 +230,91 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         System.out.println("false -> " + manager.tasks.get(firstTaskID).equals(loadedManager.tasks.get(secondTaskID)));
     }
 
+    // Если рядом со снимком лежит журнал, менеджер загружается в режиме JOURNAL, файл записей — в режиме PAGED.
     public static FileBackedTaskManager loadFromFile(File file) {
+        PersistenceMode persistenceMode = PersistenceMode.SNAPSHOT;
+        if (Files.exists(journalPath(file))) {
+            persistenceMode = PersistenceMode.JOURNAL;
+        } else if (isPageFile(file)) {
+            persistenceMode = PersistenceMode.PAGED;
+        }
+        return loadFromFile(file, persistenceMode);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode persistenceMode) {
+        return loadFromFile(file, persistenceMode, Durability.ASYNC);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode persistenceMode,
+                                                     Durability durability) {
+        return load(file, persistenceMode, durability, false);
+    }
+
+    // Загрузка двоичного снимка через отображение в память: при старте строится только индекс id -> смещение,
+    // простые задачи создаются при первом обращении. Снимок в CSV загружается как обычно.
+    public static FileBackedTaskManager loadMapped(File file, PersistenceMode persistenceMode,
+                                                   Durability durability) {
+        return load(file, persistenceMode, durability, true);
+    }
+
+    private static FileBackedTaskManager load(File file, PersistenceMode persistenceMode, Durability durability,
+                                              boolean lazy) {
         try {
-            FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(file, new InMemoryHistoryManager());
+            FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(file, new InMemoryHistoryManager(),
+                    persistenceMode, durability, false);
+            LazyTaskMap lazyTasks = lazy ? new LazyTaskMap() : null;
+            Map<Integer, Task> records = new TreeMap<>();
             int maxID = 0;
 
-            if (!file.exists() || file.length() == 0) {
-                return fileBackedTaskManager;
+            TaskPageFile pageFile = fileBackedTaskManager.pageFile;
+            boolean fromPages = pageFile != null && isPageFile(file);
+            List<Task> snapshot = fromPages ? readPages(pageFile) : fileBackedTaskManager.readSnapshot(lazyTasks);
+            for (Task currentTask : snapshot) {
+                records.put(currentTask.getID(), currentTask);
+                maxID = Math.max(maxID, currentTask.getID());
+            }
+            if (lazyTasks != null) {
+                maxID = Math.max(maxID, lazyTasks.maxIndexedID());
             }
 
-            List<String> allLines = Files.readAllLines(file.toPath());
-
-            for (int i = 1; i < allLines.size(); i++) {
-                String line = allLines.get(i);
-                if (line.trim().isEmpty()) continue;
+            // Журнал, оставшийся от прерванного сжатия, старше текущего и применяется первым.
+            for (String record : TaskJournal.readRecords(compactingJournalPath(file))) {
+                maxID = Math.max(maxID, replay(record, records, lazyTasks));
+            }
 
-                int id = fileBackedTaskManager.setIDFromString(allLines.get(i));
-                if (id > maxID) {
-                    maxID = id;
+            List<String> journalRecords = TaskJournal.readRecords(journalPath(file));
+            for (int i = 0; i < journalRecords.size(); i++) {
+                String record = journalRecords.get(i);
+                try {
+                    maxID = Math.max(maxID, replay(record, records, lazyTasks));
+                } catch (RuntimeException exc) {
+                    // Неполной может быть только последняя запись — её оборвал сбой; испорченная запись в середине — ошибка.
+                    if (i < journalRecords.size() - 1) {
+                        throw exc;
+                    }
+                    TaskJournal.dropLastRecord(journalPath(file), record);
+                    journalRecords = journalRecords.subList(0, i);
                 }
-                Task currentTask = CSVTaskFormat.createTaskFromString(allLines.get(i));
-                TaskType taskType = CSVTaskFormat.determineTaskType(currentTask);
-                switch (taskType) {
-                    case TASK -> fileBackedTaskManager.addTaskWithoutSave(currentTask);
-                    case EPIC -> fileBackedTaskManager.addEpicWithoutSave((Epic) currentTask);
-                    case SUBTASK -> fileBackedTaskManager.addSubtaskWithoutSave((Subtask) currentTask);
+            }
+            if (fileBackedTaskManager.journal != null) {
+                fileBackedTaskManager.journal.setRecordCount(journalRecords.size());
+            }
+
+            if (lazyTasks != null) {
+                fileBackedTaskManager.tasks = lazyTasks;
+            }
+
+            fileBackedTaskManager.bulkLoad(records.values());
+            // Снимок другого формата переносится в файл записей целиком. Источник — всё состояние менеджера:
+            // ленивые задачи в records не попадают и создаются до очистки файла, который они отображают.
+            if (pageFile != null && !fromPages) {
+                fileBackedTaskManager.releaseMapping();
+                List<Task> allTasks = fileBackedTaskManager.liveTasks();
+                pageFile.reset();
+                for (Task task : allTasks) {
+                    pageFile.write(task.getID(), task.getType(), CSVTaskFormat.createStringFromTask(task));
                 }
+                pageFile.force();
             }
             fileBackedTaskManager.setID(maxID + 1);
 
@@ -107,112 +324,663 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         }
     }
 
+    // Применяет запись журнала к набору задач, упорядоченному по id. Возвращает id из записи.
+    // Ещё не созданные задачи из lazyTasks (только простые задачи) перекрываются записью без декодирования.
+    private static int replay(String record, Map<Integer, Task> records, LazyTaskMap lazyTasks) {
+        int separator = record.indexOf(',');
+        String operation = record.substring(0, separator);
+
+        switch (operation) {
+            case TaskJournal.PUT -> {
+                Task task = new CSVTaskReader(record, separator + 1).next();
+                records.put(task.getID(), task);
+                if (lazyTasks != null) {
+                    lazyTasks.discard(task.getID());
+                }
+                return task.getID();
+            }
+            case TaskJournal.DELETE -> {
+                int id = Integer.parseInt(record, separator + 1, record.length(), 10);
+                Task removed = records.remove(id);
+                if (lazyTasks != null) {
+                    lazyTasks.discard(id);
+                }
+                if (removed instanceof Epic) {
+                    records.values().removeIf(task -> task instanceof Subtask subtask && subtask.getEpicID() == id);
+                }
+                return id;
+            }
+            case TaskJournal.CLEAR -> {
+                TaskType taskType = CSVTaskFormat.determineTaskTypeFromString(record.substring(separator + 1));
+                records.values().removeIf(task -> task.getType() == taskType ||
+                        (taskType == TaskType.EPIC && task.getType() == TaskType.SUBTASK));
+                if (lazyTasks != null && taskType == TaskType.TASK) {
+                    lazyTasks.clear();
+                }
+                return 0;
+            }
+            default -> throw new FileInitializationException("Неизвестная запись журнала: " + record);
+        }
+    }
+
+    // Основной файл — снимок целиком либо манифест с поколением файлов по типам.
+    private List<Task> readSnapshot(LazyTaskMap lazyTasks) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (isShardManifest(buffer)) {
+                snapshotLayout = SnapshotLayout.SHARDED_BY_TYPE;
+                shardGeneration = Long.parseLong(StandardCharsets.UTF_8.decode(
+                        buffer.position(SHARD_MANIFEST_MAGIC.length())).toString().trim());
+                return readShards(lazyTasks);
+            }
+        }
+        return readSnapshotFile(file.toPath(), lazyTasks);
+    }
+
+    // Файлы по типам разбираются параллельно в общем ForkJoinPool. Ссылки подзадач на эпики
+    // разрешаются уже после разбора, в bulkLoad.
+    private List<Task> readShards(LazyTaskMap lazyTasks) throws IOException {
+        List<Callable<List<Task>>> readers = new ArrayList<>();
+        for (TaskType taskType : TaskType.values()) {
+            Path shard = shardPath(file, shardGeneration, taskType);
+            LazyTaskMap shardLazyTasks = taskType == TaskType.TASK ? lazyTasks : null;
+            readers.add(() -> readSnapshotFile(shard, shardLazyTasks));
+        }
+
+        List<Task> snapshot = new ArrayList<>();
+        for (Future<List<Task>> shard : ForkJoinPool.commonPool().invokeAll(readers)) {
+            try {
+                snapshot.addAll(shard.get());
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Загрузка прервана");
+            } catch (ExecutionException exc) {
+                if (exc.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new FileInitializationException("Ошибка загрузки файла: " + exc.getCause().getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    // Читает снимок в формате CSV или двоичном (определяется по сигнатуре в начале файла).
+    private List<Task> readSnapshotFile(Path path, LazyTaskMap lazyTasks) throws IOException {
+        List<Task> snapshot = new ArrayList<>();
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return snapshot;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (BinaryTaskFormat.isBinary(buffer)) {
+                snapshotFormat = SnapshotFormat.BINARY;
+                return BinaryTaskFormat.read(buffer, lazyTasks);
+            }
+            if (TaskPageFile.isPageFile(buffer)) {
+                try (TaskPageFile pages = new TaskPageFile(path, false)) {
+                    return readPages(pages);
+                }
+            }
+
+            CSVTaskReader reader = new CSVTaskReader(StandardCharsets.UTF_8.decode(buffer));
+            reader.skipLine();
+            for (Task task = reader.next(); task != null; task = reader.next()) {
+                snapshot.add(task);
+            }
+        }
+        return snapshot;
+    }
+
+    private static List<Task> readPages(TaskPageFile pages) {
+        List<Task> snapshot = new ArrayList<>();
+        for (String record : pages.readAll()) {
+            snapshot.add(new CSVTaskReader(record).next());
+        }
+        return snapshot;
+    }
+
+    private static boolean isPageFile(File file) {
+        if (!file.exists() || file.length() == 0) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            return TaskPageFile.isPageFile(header.flip());
+        } catch (IOException exc) {
+            throw new FileInitializationException("Ошибка загрузки файла: " + exc.getMessage());
+        }
+    }
+
+    private static boolean isShardManifest(MappedByteBuffer buffer) {
+        if (buffer.remaining() < SHARD_MANIFEST_MAGIC.length()) {
+            return false;
+        }
+        for (int i = 0; i < SHARD_MANIFEST_MAGIC.length(); i++) {
+            if (buffer.get(i) != SHARD_MANIFEST_MAGIC.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void save() {
-        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(file))) {
-            bufferedWriter.write(CSVTaskFormat.getHeader());
-            bufferedWriter.newLine();
+        List<Task> allTasks = liveTasks();
+        boolean sync = durability == Durability.FSYNC;
+        if (snapshotLayout == SnapshotLayout.SHARDED_BY_TYPE) {
+            writeShards(allTasks, sync);
+        } else {
+            writeSnapshot(file.toPath(), allTasks, sync);
+            deleteShards();
+        }
+    }
 
-            for (Task task : tasks.values()) {
-                bufferedWriter.write(taskToString(task));
-                bufferedWriter.newLine();
+    // Ленивые задачи читаются из отображённого файла, пока он не меняется. Поэтому любая запись
+    // в основной файл, файлы по типам или файл записей сначала создаёт оставшиеся задачи и отпускает отображение.
+    private void releaseMapping() {
+        if (tasks instanceof LazyTaskMap lazyTasks) {
+            lazyTasks.materializeAll();
+        }
+    }
+
+    private List<Task> liveTasks() {
+        List<Task> allTasks = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        allTasks.addAll(tasks.values());
+        allTasks.addAll(epics.values());
+        allTasks.addAll(subtasks.values());
+        return allTasks;
+    }
+
+    private void writeSnapshot(Path target, List<Task> allTasks, boolean sync) {
+        releaseMapping();
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            try {
+                BinaryTaskFormat.write(target, allTasks, sync);
+            } catch (IOException exc) {
+                throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
             }
+        } else {
+            writeCsvSnapshot(target, allTasks, sync);
+        }
+    }
+
+    private static void writeCsvSnapshot(Path target, List<Task> allTasks, boolean sync) {
+        try (FileOutputStream outputStream = new FileOutputStream(target.toFile());
+             BufferedWriter bufferedWriter = new BufferedWriter(
+                     new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            bufferedWriter.write(CSVTaskFormat.getHeader());
+            bufferedWriter.newLine();
 
-            for (Epic epic : epics.values()) {
-                bufferedWriter.write(taskToString(epic));
+            for (Task task : allTasks) {
+                bufferedWriter.write(CSVTaskFormat.createStringFromTask(task));
                 bufferedWriter.newLine();
             }
 
-            for (Subtask subtask : subtasks.values()) {
-                bufferedWriter.write(taskToString(subtask));
-                bufferedWriter.newLine();
+            if (sync) {
+                bufferedWriter.flush();
+                outputStream.getFD().sync();
             }
         } catch (IOException exc) {
             throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
         }
     }
 
+    // Сжатие: текущий журнал откладывается в .log.old, новые записи идут в чистый журнал,
+    // а снимок живых задач пишется в фоне во временный файл и атомарно подменяет основной.
+    // Записи журнала абсолютны (PUT/DELETE/CLEAR), поэтому изменения задач во время записи снимка
+    // безопасны: при загрузке они повторно применятся из нового журнала.
+    public void compact() {
+        if (journal == null || (compaction != null && !compaction.isDone())) {
+            return;
+        }
+
+        List<Task> snapshot = liveTasks();
+        journal.rotate(compactingJournalPath(file));
+
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compaction = compactionExecutor.submit(() -> {
+            try {
+                replaceSnapshot(snapshot, durability != Durability.ASYNC);
+                Files.delete(compactingJournalPath(file));
+            } catch (IOException | ManagerSaveException exc) {
+                System.err.println("Ошибка сжатия журнала: " + exc.getMessage());
+            }
+        });
+    }
+
+    // Снимок пишется во временный файл и атомарно подменяет основной, чтобы сбой не оставил его обрезанным.
+    private void replaceSnapshot(List<Task> snapshot, boolean sync) throws IOException {
+        if (snapshotLayout == SnapshotLayout.SHARDED_BY_TYPE) {
+            writeShards(snapshot, sync);
+            return;
+        }
+
+        Path tempFile = Path.of(file.getPath() + ".tmp");
+        writeSnapshot(tempFile, snapshot, sync);
+        Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteShards();
+    }
+
+    // Каждый тип задач пишется в свой файл нового поколения параллельно в общем ForkJoinPool.
+    // Манифест подменяется атомарно последним, поэтому после сбоя загрузится целиком старое или новое поколение.
+    private void writeShards(List<Task> allTasks, boolean sync) {
+        Map<TaskType, List<Task>> tasksByType = new EnumMap<>(TaskType.class);
+        for (TaskType taskType : TaskType.values()) {
+            tasksByType.put(taskType, new ArrayList<>());
+        }
+        for (Task task : allTasks) {
+            tasksByType.get(task.getType()).add(task);
+        }
+
+        synchronized (shardLock) {
+            long generation = shardGeneration + 1;
+            List<Callable<Void>> writers = new ArrayList<>();
+            for (TaskType taskType : TaskType.values()) {
+                Path shard = shardPath(file, generation, taskType);
+                List<Task> shardTasks = tasksByType.get(taskType);
+                writers.add(() -> {
+                    writeSnapshot(shard, shardTasks, sync);
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> writer : ForkJoinPool.commonPool().invokeAll(writers)) {
+                    writer.get();
+                }
+
+                Path tempFile = Path.of(file.getPath() + ".tmp");
+                try (FileOutputStream outputStream = new FileOutputStream(tempFile.toFile())) {
+                    outputStream.write((SHARD_MANIFEST_MAGIC + "\n" + generation + "\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    if (sync) {
+                        outputStream.getFD().sync();
+                    }
+                }
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Сохранение прервано");
+            } catch (ExecutionException | IOException exc) {
+                Throwable cause = exc instanceof ExecutionException ? exc.getCause() : exc;
+                throw new ManagerSaveException("Ошибка при сохранении в файл: " + cause.getMessage());
+            }
+
+            deleteShards();
+            shardGeneration = generation;
+        }
+    }
+
+    // Удаляет файлы по типам, на которые манифест уже не указывает.
+    private void deleteShards() {
+        synchronized (shardLock) {
+            if (shardGeneration == 0) {
+                return;
+            }
+            for (TaskType taskType : TaskType.values()) {
+                try {
+                    Files.deleteIfExists(shardPath(file, shardGeneration, taskType));
+                } catch (IOException exc) {
+                    System.err.println("Не удалось удалить файл снимка: " + exc.getMessage());
+                }
+            }
+            shardGeneration = 0;
+        }
+    }
+
+    // Синхронно сохраняет все изменения, сделанные до вызова:
+    // в ASYNC_SNAPSHOT пишет снимок, в режимах журнала и PAGED выполняет force.
+    public void flush() {
+        if (journal != null) {
+            journal.force();
+        } else if (pageFile != null) {
+            pageFile.force();
+        } else if (persistenceMode == PersistenceMode.ASYNC_SNAPSHOT) {
+            flushSnapshot();
+        }
+    }
+
+    // Все изменения, накопленные за интервал, записываются одним снимком.
+    private void flushSnapshot() {
+        synchronized (flushLock) {
+            List<Task> snapshot;
+            long snapshotVersion;
+            synchronized (stateLock) {
+                if (version == persistedVersion) {
+                    return;
+                }
+                snapshot = liveTasks();
+                snapshotVersion = version;
+            }
+
+            try {
+                replaceSnapshot(snapshot, durability == Durability.FSYNC);
+            } catch (IOException exc) {
+                throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
+            }
+            persistedVersion = snapshotVersion;
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flushSnapshot();
+        } catch (ManagerSaveException exc) {
+            System.err.println(exc.getMessage());
+        } finally {
+            synchronized (flushLock) {
+                flushRound++;
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    // Ждёт ближайший фоновый снимок. Если он не покрыл изменения, сделанные до вызова
+    // (снимок был снят раньше или запись не удалась), снимок пишется синхронно.
+    private void awaitSnapshot() {
+        long target;
+        synchronized (stateLock) {
+            target = version;
+        }
+        synchronized (flushLock) {
+            long round = flushRound;
+            while (persistedVersion < target && flushRound == round && !flusher.isShutdown()) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (persistedVersion >= target) {
+                return;
+            }
+        }
+        flushSnapshot();
+    }
+
+    private void markDirty() {
+        version++;
+    }
+
+    private void compactIfNeeded() {
+        if (journal.getRecordCount() >= maxJournalRecords || journal.size() >= maxJournalBytes) {
+            compact();
+        }
+    }
+
     private String taskToString(Task task) {
         return CSVTaskFormat.createStringFromTask(task);
     }
 
+    private void saved(Task task) {
+        if (journal != null) {
+            appendToJournal(TaskJournal.putRecord(taskToString(task)));
+        } else if (pageFile != null) {
+            dirtyIDs.add(task.getID());
+            if (task instanceof Subtask subtask) {
+                dirtyIDs.add(subtask.getEpicID());
+            }
+            writeDirtyUnlessBatch();
+        } else {
+            snapshotChanged();
+        }
+    }
+
+    private void deleted(Task task) {
+        if (journal != null) {
+            appendToJournal(TaskJournal.deleteRecord(task.getID()));
+        } else if (pageFile != null) {
+            dirtyIDs.add(task.getID());
+            if (task instanceof Subtask subtask) {
+                dirtyIDs.add(subtask.getEpicID());
+            } else if (task instanceof Epic epic) {
+                dirtyIDs.addAll(epic.getSubtaskIDs());
+            }
+            writeDirtyUnlessBatch();
+        } else {
+            snapshotChanged();
+        }
+    }
+
+    private void cleared(TaskType taskType) {
+        if (journal != null) {
+            appendToJournal(TaskJournal.clearRecord(taskType));
+        } else if (pageFile != null) {
+            dirtyIDs.addAll(pageFile.ids(taskType));
+            // Удаление эпиков удаляет их подзадачи, удаление подзадач меняет статус и время эпиков.
+            if (taskType == TaskType.EPIC) {
+                dirtyIDs.addAll(pageFile.ids(TaskType.SUBTASK));
+            } else if (taskType == TaskType.SUBTASK) {
+                dirtyIDs.addAll(pageFile.ids(TaskType.EPIC));
+            }
+            writeDirtyUnlessBatch();
+        } else {
+            snapshotChanged();
+        }
+    }
+
+    private void appendToJournal(String record) {
+        if (inBatch) {
+            batchRecords.add(record);
+            return;
+        }
+        lastSequence.set(journal.append(record));
+        compactIfNeeded();
+    }
+
+    private void writeDirtyUnlessBatch() {
+        if (!inBatch) {
+            writeDirty();
+        }
+    }
+
+    private void snapshotChanged() {
+        if (flusher != null) {
+            markDirty();
+        } else if (inBatch) {
+            batchDirty = true;
+        } else {
+            save();
+        }
+    }
+
+    // Весь пакет выполняется под stateLock и сохраняется одной операцией:
+    // одной записью в журнал, одной перезаписью изменённых записей или одним снимком.
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        synchronized (stateLock) {
+            inBatch = true;
+            try {
+                return super.applyBatch(operations);
+            } finally {
+                inBatch = false;
+                finishBatch();
+            }
+        }
+    }
+
+    private void finishBatch() {
+        if (journal != null) {
+            if (!batchRecords.isEmpty()) {
+                try {
+                    lastSequence.set(journal.append(batchRecords));
+                } finally {
+                    batchRecords.clear();
+                }
+                compactIfNeeded();
+            }
+        } else if (pageFile != null) {
+            if (!dirtyIDs.isEmpty()) {
+                writeDirty();
+            }
+        } else if (batchDirty) {
+            batchDirty = false;
+            save();
+        }
+    }
+
+    // Переписывает в файл записей только изменённые задачи; удалённые задачи стираются из него.
+    private void writeDirty() {
+        releaseMapping();
+        for (int id : dirtyIDs) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+
+            if (task != null) {
+                pageFile.write(id, task.getType(), taskToString(task));
+            } else {
+                pageFile.delete(id);
+            }
+        }
+        dirtyIDs.clear();
+        if (durability != Durability.ASYNC) {
+            pageFile.force();
+        }
+    }
+
     @Override
     public int addTask(Task task) {
-        int id = super.addTask(task);
-        save();
-        return id;
+        synchronized (stateLock) {
+            int id = super.addTask(task);
+            saved(task);
+            return id;
+        }
     }
 
     @Override
     public int addEpic(Epic epic) {
-        int id = super.addEpic(epic);
-        save();
-        return id;
+        synchronized (stateLock) {
+            int id = super.addEpic(epic);
+            saved(epic);
+            return id;
+        }
     }
 
     @Override
     public Integer addSubtask(Subtask subtask) {
-        Integer id = super.addSubtask(subtask);
-        if (id != null) {
-            save();
+        synchronized (stateLock) {
+            Integer id = super.addSubtask(subtask);
+            if (id != null) {
+                saved(subtask);
+            }
+            return id;
         }
-        return id;
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        synchronized (stateLock) {
+            super.deleteAllTasks();
+            cleared(TaskType.TASK);
+        }
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        synchronized (stateLock) {
+            super.deleteAllEpics();
+            cleared(TaskType.EPIC);
+        }
     }
 
     @Override
     public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        save();
+        synchronized (stateLock) {
+            super.deleteAllSubtasks();
+            cleared(TaskType.SUBTASK);
+        }
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        synchronized (stateLock) {
+            super.updateTask(task);
+            Task existingTask = tasks.get(task.getID());
+            if (existingTask != null) {
+                saved(existingTask);
+            }
+        }
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        synchronized (stateLock) {
+            super.updateEpic(epic);
+            Epic existingEpic = epics.get(epic.getID());
+            if (existingEpic != null) {
+                saved(existingEpic);
+            }
+        }
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        synchronized (stateLock) {
+            super.updateSubtask(subtask);
+            Subtask existingSubtask = subtasks.get(subtask.getID());
+            if (existingSubtask != null) {
+                saved(existingSubtask);
+            }
+        }
     }
 
     @Override
     public Task deleteTaskByID(int id) {
-        Task task = super.deleteTaskByID(id);
-        save();
-        return task;
+        synchronized (stateLock) {
+            Task task = super.deleteTaskByID(id);
+            if (task != null) {
+                deleted(task);
+            }
+            return task;
+        }
     }
 
     @Override
     public Epic deleteEpicByID(int id) {
-        Epic epic = super.deleteEpicByID(id);
-        save();
-        return epic;
+        synchronized (stateLock) {
+            Epic epic = super.deleteEpicByID(id);
+            if (epic != null) {
+                deleted(epic);
+            }
+            return epic;
+        }
     }
 
     @Override
     public Subtask deleteSubtaskByID(int id) {
-        Subtask subtask = super.deleteSubtaskByID(id);
-        save();
-        return subtask;
+        synchronized (stateLock) {
+            Subtask subtask = super.deleteSubtaskByID(id);
+            if (subtask != null) {
+                deleted(subtask);
+            }
+            return subtask;
+        }
+    }
+
+    @Override
+    protected List<Task> taskPage(int afterID, int limit) {
+        if (tasks instanceof LazyTaskMap lazyTasks) {
+            return lazyTasks.page(afterID, limit);
+        }
+        return super.taskPage(afterID, limit);
     }
 
     public void addTaskWithoutSave(Task task) {
@@ -227,12 +995,44 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         super.addSubtask(subtask);
     }
 
+    // В режиме GROUP_COMMIT ждёт общего force, покрывающего последнюю запись текущего потока;
+    // в ASYNC_SNAPSHOT — снимка, в который попали все изменения до вызова.
+    @Override
+    public void awaitDurable() {
+        if (journal != null) {
+            journal.awaitDurable(lastSequence.get());
+        } else if (flusher != null) {
+            awaitSnapshot();
+        }
+    }
 
-    private int setIDFromString(String csvLine) {
-        String[] fields = csvLine.split(",");
-        int id = Integer.parseInt(fields[0]);
-        super.updateIdentifier(id);
-        return id;
+    // Дожидается фонового сжатия, записывает несохранённые изменения и закрывает журнал.
+    public void close() {
+        if (flusher != null) {
+            flushTask.cancel(false);
+            flusher.shutdown();
+            flushSnapshot();
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        if (compactionExecutor != null) {
+            try {
+                if (compaction != null) {
+                    compaction.get();
+                }
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException exc) {
+                throw new ManagerSaveException("Ошибка сжатия журнала: " + exc.getMessage());
+            } finally {
+                compactionExecutor.shutdown();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (pageFile != null) {
+            pageFile.close();
+        }
     }
 
     private void setID(int id) {
@@ -10,4 +10,6 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    List<Task> getHistoryPage(int afterID, int limit);
 }
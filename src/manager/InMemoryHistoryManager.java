@@ -37,6 +37,27 @@ public class InMemoryHistoryManager implements HistoryManager {
         return getTasks();
     }
 
+    // Страница начинается после узла задачи afterID, поэтому не зависит от того, что было до неё.
+    // Если задачу afterID с тех пор удалили или просмотрели заново, курсор больше не указывает на место в истории.
+    @Override
+    public List<Task> getHistoryPage(int afterID, int limit) {
+        Node currentNode = first;
+        if (afterID != 0) {
+            Node cursorNode = historyMap.get(afterID);
+            if (cursorNode == null) {
+                throw new IllegalArgumentException("Задачи с id " + afterID + " нет в истории");
+            }
+            currentNode = cursorNode.getNext();
+        }
+
+        List<Task> tasks = new ArrayList<>(Math.min(limit, 64));
+        while (currentNode != null && tasks.size() < limit) {
+            tasks.add(currentNode.getTask());
+            currentNode = currentNode.getNext();
+        }
+        return tasks;
+    }
+
     private void linkLast(Task task) {
         final Node newNode = new Node(last, task, null);
 
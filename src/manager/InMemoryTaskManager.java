@@ -1,29 +1,61 @@
 package manager;
 
+import exceptions.TaskNotFoundException;
 import exceptions.TaskValidationException;
+import models.BatchAction;
+import models.BatchOperation;
+import models.BatchResult;
 import models.Epic;
-import models.Status;
 import models.Subtask;
 import models.Task;
+import models.TaskFilter;
+import models.TaskType;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class InMemoryTaskManager implements TaskManager {
-    private int identifier = 1;
-    protected Map<Integer, Task> tasks = new HashMap<>();
-    protected Map<Integer, Epic> epics = new HashMap<>();
-    protected Map<Integer, Subtask> subtasks = new HashMap<>();
+    private final AtomicInteger identifier = new AtomicInteger(1);
+    // Хранилища упорядочены по id, чтобы страницы брались из tailMap без копирования всей коллекции.
+    protected Map<Integer, Task> tasks = new TreeMap<>();
+    protected NavigableMap<Integer, Epic> epics = new TreeMap<>();
+    protected NavigableMap<Integer, Subtask> subtasks = new TreeMap<>();
     private final HistoryManager historyManager;
-    protected Set<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+    // Порядок: startTime, затем endTime, затем id — задачи с одинаковым началом не схлопываются.
+    // Временная метка-зонд без длительности (endTime == null) встаёт после всех задач с тем же началом.
+    private static final Comparator<Task> PRIORITY_ORDER = Comparator
+            .comparing(Task::getStartTime)
+            .thenComparing(Task::getEndTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Task::getID);
+    protected NavigableSet<Task> prioritizedTasks = new TreeSet<>(PRIORITY_ORDER);
+    // Версии для условных GET: при каждом изменении общий счётчик растёт, и его значение получают
+    // изменённая задача и затронутые коллекции. Перезапись версии большей безопасна — лишний раз вернётся 200.
+    private final AtomicLong versionClock = new AtomicLong();
+    private volatile long tasksVersion;
+    private volatile long epicsVersion;
+    private volatile long subtasksVersion;
+    private volatile long historyVersion;
+    private volatile long prioritizedVersion;
+    // Вторичные индексы для find*: строятся при первом запросе и дальше обновляются в changed().
+    // Массовые изменения (удаление коллекции, загрузка) сбрасывают их до следующего запроса.
+    private final TaskIndex taskIndex = new TaskIndex();
+    private final TaskIndex epicIndex = new TaskIndex();
+    private final TaskIndex subtaskIndex = new TaskIndex();
+    private boolean indexesBuilt;
 
 
     public InMemoryTaskManager(HistoryManager historyManager) {
@@ -31,15 +63,17 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     private int setIdentifier() {
-        return identifier++;
+        return identifier.getAndIncrement();
     }
 
     @Override
     public int addTask(Task task) {
-        addToPrioritizedTasksList(task);
+        checkOverlapping(task);
         int newID = setIdentifier();
         task.setID(newID);
         tasks.put(task.getID(), task);
+        addToPrioritizedTasksList(task);
+        changed(task);
         return newID;
     }
 
@@ -48,32 +82,33 @@ public class InMemoryTaskManager implements TaskManager {
         int newID = setIdentifier();
         epic.setID(newID);
         epics.put(epic.getID(), epic);
+        changed(epic);
         return newID;
     }
 
     @Override
     public Integer addSubtask(Subtask subtask) {
         if (epics.containsKey(subtask.getEpicID())) {
-            addToPrioritizedTasksList(subtask);
+            checkOverlapping(subtask);
             int newID = setIdentifier();
             subtask.setID(newID);
             subtasks.put(subtask.getID(), subtask);
-        //    addToPrioritizedTasksList(subtask);
+            addToPrioritizedTasksList(subtask);
 
             Epic epic = epics.get(subtask.getEpicID());
             if (epic.getSubtaskIDs() != null) {
                 ArrayList<Integer> newSubtasksByEpic = epic.getSubtaskIDs();
                 newSubtasksByEpic.add(subtask.getID());
                 epic.setSubtaskIDs(newSubtasksByEpic);
-                checkEpicStatus(epic, epic.getSubtaskIDs());
-                updateEpicTimesFields(epic);
             } else {
                 ArrayList<Integer> newSubtasksByEpic = new ArrayList<>();
-                newSubtasksByEpic.add(subtask.getEpicID());
+                newSubtasksByEpic.add(subtask.getID());
                 epic.setSubtaskIDs(newSubtasksByEpic);
-                checkEpicStatus(epic, epic.getSubtaskIDs());
-                updateEpicTimesFields(epic);
             }
+            epic.updateSubtaskStatus(subtask.getID(), subtask.getStatus());
+            epic.addSubtaskTimes(subtask);
+            changed(subtask);
+            changed(epic);
             return newID;
         } else {
             return null;
@@ -102,6 +137,7 @@ public class InMemoryTaskManager implements TaskManager {
             prioritizedTasks.remove(task);
         }
         tasks.clear();
+        collectionsChanged();
     }
 
     @Override
@@ -117,6 +153,7 @@ public class InMemoryTaskManager implements TaskManager {
             prioritizedTasks.remove(epic);
         }
         epics.clear();
+        collectionsChanged();
     }
 
     @Override
@@ -129,9 +166,11 @@ public class InMemoryTaskManager implements TaskManager {
 
         for (Epic epic : epics.values()) {
             epic.setSubtaskIDs(new ArrayList<>());
-            checkEpicStatus(epic, epic.getSubtaskIDs());
-            updateEpicTimesFields(epic);
+            epic.clearSubtaskStatuses();
+            epic.clearSubtaskTimes();
+            changed(epic);
         }
+        collectionsChanged();
     }
 
     @Override
@@ -141,6 +180,7 @@ public class InMemoryTaskManager implements TaskManager {
                 Task taskForHistory = new Task(task.getName(), task.getDescription(), task.getStatus());
                 taskForHistory.setID(task.getID());
                 historyManager.add(taskForHistory);
+                historyVersion = versionClock.incrementAndGet();
 
                 return tasks.get(id);
             } else {
@@ -155,6 +195,7 @@ public class InMemoryTaskManager implements TaskManager {
             Epic epicForHistory = new Epic(epic.getName(), epic.getDescription(), epic.getStatus());
             epicForHistory.setID(epic.getID());
             historyManager.add(epicForHistory);
+            historyVersion = versionClock.incrementAndGet();
 
             return epics.get(id);
         } else {
@@ -169,6 +210,7 @@ public class InMemoryTaskManager implements TaskManager {
             Subtask subtaskForHistory = new Subtask(subtask.getName(), subtask.getDescription(), subtask.getStatus(), subtask.getEpicID());
             subtaskForHistory.setID(subtask.getID());
             historyManager.add(subtasks.get(id));
+            historyVersion = versionClock.incrementAndGet();
 
             return subtasks.get(id);
         } else {
@@ -183,6 +225,7 @@ public class InMemoryTaskManager implements TaskManager {
             existingTask.setName(task.getName());
             existingTask.setDescription(task.getDescription());
             existingTask.setStatus(task.getStatus());
+            changed(existingTask);
         }
     }
 
@@ -193,7 +236,7 @@ public class InMemoryTaskManager implements TaskManager {
             existingEpic.setName(epic.getName());
             existingEpic.setDescription(epic.getDescription());
             existingEpic.setStatus(epic.getStatus());
-            updateEpicTimesFields(existingEpic);
+            changed(existingEpic);
         }
     }
 
@@ -204,9 +247,10 @@ public class InMemoryTaskManager implements TaskManager {
             existingSubtask.setName(subtask.getName());
             existingSubtask.setDescription(subtask.getDescription());
             existingSubtask.setStatus(subtask.getStatus());
-            Epic epic = epics.get(subtask.getEpicID());
-            checkEpicStatus(epic, epic.getSubtaskIDs());
-            updateEpicTimesFields(epic);
+            Epic epic = epics.get(existingSubtask.getEpicID());
+            epic.updateSubtaskStatus(existingSubtask.getID(), existingSubtask.getStatus());
+            changed(existingSubtask);
+            changed(epic);
         }
     }
 
@@ -215,7 +259,9 @@ public class InMemoryTaskManager implements TaskManager {
         if (tasks.get(id) != null) {
             prioritizedTasks.remove(tasks.get(id));
             historyManager.remove(id);
-            return tasks.remove(id);
+            Task task = tasks.remove(id);
+            changed(task);
+            return task;
         }
         System.out.println("Задачи с таким id нет!");
         return null;
@@ -234,10 +280,17 @@ public class InMemoryTaskManager implements TaskManager {
                 }
                 historyManager.remove(subtaskID);
                 subtasks.remove(subtaskID);
+                if (indexesBuilt) {
+                    subtaskIndex.remove(subtaskID);
+                }
             }
 
             historyManager.remove(id);
             epics.remove(id);
+            changed(epic);
+            // Вместе с эпиком удалены его подзадачи.
+            subtasksVersion = epic.getVersion();
+            prioritizedVersion = epic.getVersion();
             return epic;
         }
         System.out.println("Задачи с таким id нет!");
@@ -257,9 +310,11 @@ public class InMemoryTaskManager implements TaskManager {
                 ArrayList<Integer> newSubtasksByEpic = epic.getSubtaskIDs();
                 newSubtasksByEpic.remove((Integer) id);
                 epic.setSubtaskIDs(newSubtasksByEpic);
-                checkEpicStatus(epic, newSubtasksByEpic);
-                updateEpicTimesFields(epic);
+                epic.removeSubtaskStatus(id);
+                epic.removeSubtaskTimes(subtask);
+                changed(epic);
             }
+            changed(subtask);
             return subtask;
         }
         System.out.println("Задачи с таким id нет!");
@@ -291,56 +346,345 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(historyManager.getHistory());
     }
 
-    private void checkEpicStatus(Epic epic, ArrayList<Integer> subtaskIDs) {
-        if (subtaskIDs == null) {
-            epic.setStatus(Status.NEW);
-            return;
+    @Override
+    public List<Task> getTasksPage(int afterID, int limit) {
+        return taskPage(afterID, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int afterID, int limit) {
+        return page(epics, afterID, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int afterID, int limit) {
+        return page(subtasks, afterID, limit);
+    }
+
+    @Override
+    public List<Task> getHistoryPage(int afterID, int limit) {
+        return historyManager.getHistoryPage(afterID, limit);
+    }
+
+    // Наследник, подменивший хранилище tasks, может переопределить выборку страницы.
+    // Для несортированного хранилища страница собирается сортировкой id.
+    protected List<Task> taskPage(int afterID, int limit) {
+        if (tasks instanceof NavigableMap<Integer, Task> sortedTasks) {
+            return page(sortedTasks, afterID, limit);
+        }
+        return tasks.keySet().stream()
+                .filter(id -> id > afterID)
+                .sorted()
+                .limit(limit)
+                .map(tasks::get)
+                .collect(Collectors.toList());
+    }
+
+    private static <T extends Task> List<T> page(NavigableMap<Integer, T> source, int afterID, int limit) {
+        List<T> page = new ArrayList<>(Math.min(limit, 64));
+        for (T task : source.tailMap(afterID, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(task);
+        }
+        return page;
+    }
+
+    // Операции выполняются по порядку и независимо: ошибка клиента в одной попадает в её результат
+    // и не отменяет остальные. Прочие исключения — сбой сервера, они прерывают пакет.
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        for (BatchOperation operation : operations) {
+            try {
+                results.add(apply(operation));
+            } catch (TaskValidationException e) {
+                results.add(new BatchResult(406, operation.getID(), e.getMessage()));
+            } catch (TaskNotFoundException e) {
+                results.add(new BatchResult(404, operation.getID(), e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                results.add(new BatchResult(400, operation.getID(), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private BatchResult apply(BatchOperation operation) {
+        if (operation.getAction() == null || operation.getType() == null) {
+            return new BatchResult(400, operation.getID(), "Не указано действие или тип задачи");
+        }
+        if (operation.getAction() != BatchAction.CREATE && operation.getID() == null) {
+            return new BatchResult(400, null, "Не указан id задачи");
+        }
+        if (operation.getAction() != BatchAction.DELETE && (operation.getTask() == null
+                || operation.getTask().getType() != operation.getType())) {
+            return new BatchResult(400, operation.getID(), "Не передана задача типа " + operation.getType());
+        }
+
+        int id = operation.getAction() == BatchAction.CREATE ? 0 : operation.getID();
+        Task task = operation.getTask();
+        return switch (operation.getAction()) {
+            case CREATE -> {
+                Integer newID = switch (operation.getType()) {
+                    case TASK -> addTask(task);
+                    case EPIC -> addEpic((Epic) task);
+                    case SUBTASK -> addSubtask((Subtask) task);
+                };
+                yield newID != null ? new BatchResult(201, newID, null)
+                        : new BatchResult(404, null, "Эпик для подзадачи не найден");
+            }
+            case UPDATE -> {
+                if (!contains(operation.getType(), id)) {
+                    yield notFound(id);
+                }
+                task.setID(id);
+                switch (operation.getType()) {
+                    case TASK -> updateTask(task);
+                    case EPIC -> updateEpic((Epic) task);
+                    case SUBTASK -> updateSubtask((Subtask) task);
+                }
+                yield new BatchResult(200, id, null);
+            }
+            case DELETE -> {
+                Task deleted = switch (operation.getType()) {
+                    case TASK -> tasks.containsKey(id) ? deleteTaskByID(id) : null;
+                    case EPIC -> epics.containsKey(id) ? deleteEpicByID(id) : null;
+                    case SUBTASK -> subtasks.containsKey(id) ? deleteSubtaskByID(id) : null;
+                };
+                yield deleted != null ? new BatchResult(200, id, null) : notFound(id);
+            }
+        };
+    }
+
+    private boolean contains(TaskType taskType, int id) {
+        return switch (taskType) {
+            case TASK -> tasks.containsKey(id);
+            case EPIC -> epics.containsKey(id);
+            case SUBTASK -> subtasks.containsKey(id);
+        };
+    }
+
+    private static BatchResult notFound(int id) {
+        return new BatchResult(404, id, "Задача с id " + id + " не найдена");
+    }
+
+    @Override
+    public long getTasksVersion() {
+        return tasksVersion;
+    }
+
+    @Override
+    public long getEpicsVersion() {
+        return epicsVersion;
+    }
+
+    @Override
+    public long getSubtasksVersion() {
+        return subtasksVersion;
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return historyVersion;
+    }
+
+    @Override
+    public long getPrioritizedVersion() {
+        return prioritizedVersion;
+    }
+
+    // Задача изменилась: новая версия у неё, у её коллекции, у истории (там могут быть её данные)
+    // и у списка приоритетов (эпиков в нём нет).
+    private void changed(Task task) {
+        long version = versionClock.incrementAndGet();
+        task.setVersion(version);
+        switch (task.getType()) {
+            case TASK -> tasksVersion = version;
+            case EPIC -> epicsVersion = version;
+            case SUBTASK -> subtasksVersion = version;
+        }
+        if (task.getType() != TaskType.EPIC) {
+            prioritizedVersion = version;
         }
+        historyVersion = version;
+
+        if (indexesBuilt) {
+            TaskIndex index = indexFor(task.getType());
+            if (contains(task.getType(), task.getID())) {
+                index.update(task);
+            } else {
+                index.remove(task.getID());
+            }
+        }
+    }
+
+    private void collectionsChanged() {
+        long version = versionClock.incrementAndGet();
+        tasksVersion = version;
+        epicsVersion = version;
+        subtasksVersion = version;
+        historyVersion = version;
+        prioritizedVersion = version;
+
+        indexesBuilt = false;
+        taskIndex.clear();
+        epicIndex.clear();
+        subtaskIndex.clear();
+    }
 
-        List<Subtask> subtasksByEpic = subtaskIDs.stream()
-                .flatMap(id -> subtasks.values().stream().filter(subtask -> subtask.getID() == id))
-                .toList();
+    @Override
+    public List<Task> findTasks(TaskFilter filter) {
+        return find(tasks, taskIndex, filter);
+    }
 
-        boolean allNew = subtasksByEpic.stream().allMatch(st -> st.getStatus() == Status.NEW);
-        boolean allDone = subtasksByEpic.stream().allMatch(st -> st.getStatus() == Status.DONE);
+    @Override
+    public List<Epic> findEpics(TaskFilter filter) {
+        return find(epics, epicIndex, filter);
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskFilter filter) {
+        return find(subtasks, subtaskIndex, filter);
+    }
 
-        if (allNew) {
-            epic.setStatus(Status.NEW);
-        } else if (allDone) {
-            epic.setStatus(Status.DONE);
+    // Кандидаты берутся из самого узкого доступного источника: подзадачи эпика, окно времени начала,
+    // индекс статуса; остальные условия проверяются только на кандидатах.
+    private <T extends Task> List<T> find(Map<Integer, T> source, TaskIndex index, TaskFilter filter) {
+        buildIndexes();
+        Collection<Integer> candidates;
+        if (filter.getEpicID() != null) {
+            Epic epic = epics.get(filter.getEpicID());
+            candidates = epic != null ? epic.getSubtaskIDs() : List.of();
+        } else if (filter.hasTimeWindow()) {
+            candidates = new ArrayList<>();
+            for (Set<Integer> ids : index.startingBetween(filter.getFrom(), filter.getTo())) {
+                candidates.addAll(ids);
+            }
+        } else if (filter.getStatus() != null) {
+            candidates = index.withStatus(filter.getStatus());
         } else {
-            epic.setStatus(Status.IN_PROGRESS);
+            return new ArrayList<>(source.values());
+        }
+
+        List<T> found = new ArrayList<>();
+        for (Integer id : candidates) {
+            T task = source.get(id);
+            if (task != null && filter.matches(task)) {
+                found.add(task);
+            }
         }
+        found.sort(Comparator.comparingInt(Task::getID));
+        return found;
     }
 
-    private void updateEpicTimesFields(Epic epic) {
-        if (epic == null) {
-            return;
+    private void buildIndexes() {
+        if (!indexesBuilt) {
+            taskIndex.rebuild(tasks.values());
+            epicIndex.rebuild(epics.values());
+            subtaskIndex.rebuild(subtasks.values());
+            indexesBuilt = true;
         }
+    }
 
-        List<Subtask> subtasks = getSubtasksByEpic(epic.getID());
-        epic.updateEpicTimesFields(Objects.requireNonNullElseGet(subtasks, ArrayList::new));
+    private TaskIndex indexFor(TaskType taskType) {
+        return switch (taskType) {
+            case TASK -> taskIndex;
+            case EPIC -> epicIndex;
+            case SUBTASK -> subtaskIndex;
+        };
     }
 
     public void updateIdentifier(int newIdentifier) {
-        this.identifier = newIdentifier;
+        identifier.set(newIdentifier);
+    }
+
+    // Массовая загрузка задач с уже назначенными id: все записи вставляются сразу, список приоритетов
+    // строится одной сортировкой, пересечения проверяются одним проходом, статус и время эпиков считаются в конце.
+    // Подзадачи без эпика пропускаются, как и в addSubtask.
+    protected void bulkLoad(Collection<? extends Task> records) {
+        List<Task> timedTasks = new ArrayList<>();
+        for (Task task : records) {
+            switch (task.getType()) {
+                case TASK -> {
+                    tasks.put(task.getID(), task);
+                    timedTasks.add(task);
+                }
+                case EPIC -> epics.put(task.getID(), (Epic) task);
+                case SUBTASK -> {
+                }
+            }
+        }
+
+        Map<Integer, List<Subtask>> subtasksByEpic = new HashMap<>();
+        for (Task task : records) {
+            if (task instanceof Subtask subtask && epics.containsKey(subtask.getEpicID())) {
+                subtasks.put(subtask.getID(), subtask);
+                subtasksByEpic.computeIfAbsent(subtask.getEpicID(), epicID -> new ArrayList<>()).add(subtask);
+                timedTasks.add(subtask);
+            }
+        }
+
+        NavigableSet<Task> loadedTasks = new TreeSet<>(PRIORITY_ORDER);
+        loadedTasks.addAll(prioritizedTasks);
+        for (Task task : timedTasks) {
+            if (task.getStartTime() != null && task.getEndTime() != null) {
+                loadedTasks.add(task);
+            }
+        }
+
+        // В отсортированном по началу списке задача пересекается с предыдущими,
+        // только если начинается раньше самого позднего окончания среди них.
+        Task latest = null;
+        for (Task task : loadedTasks) {
+            if (latest != null && isOverlapping(task, latest)) {
+                throwOverlapping(latest);
+            }
+            if (latest == null || task.getEndTime().isAfter(latest.getEndTime())) {
+                latest = task;
+            }
+        }
+        prioritizedTasks = loadedTasks;
+
+        for (Map.Entry<Integer, List<Subtask>> entry : subtasksByEpic.entrySet()) {
+            epics.get(entry.getKey()).rebuildSubtasks(entry.getValue());
+        }
+        collectionsChanged();
     }
 
     private void addToPrioritizedTasksList(Task newTask) {
         if (newTask.getStartTime() == null || newTask.getEndTime() == null) {
             return;
         }
+        prioritizedTasks.add(newTask);
+    }
+
+    // Задачи в prioritizedTasks не пересекаются, поэтому их endTime растут вместе со startTime.
+    // Достаточно проверить двух соседей: последнюю задачу, начавшуюся не позже новой,
+    // и первую задачу, начавшуюся строго позже неё.
+    private void checkOverlapping(Task newTask) {
+        if (newTask.getStartTime() == null || newTask.getEndTime() == null) {
+            return;
+        }
+
+        Task probe = new Task(null, null, null);
+        probe.setStartTime(newTask.getStartTime());
+
+        Task previous = prioritizedTasks.floor(probe);
+        if (previous != null && isOverlapping(newTask, previous)) {
+            throwOverlapping(previous);
+        }
+
+        Task next = prioritizedTasks.higher(probe);
+        if (next != null && isOverlapping(newTask, next)) {
+            throwOverlapping(next);
+        }
+    }
 
-        prioritizedTasks.stream()
-                .filter(existingTask -> isOverlapping(newTask, existingTask))
-                .findFirst()
-                .ifPresentOrElse(overlappedTask -> {
-                            String message = "Задача пересекается с id= " + overlappedTask.getID() +
-                                    " c " + overlappedTask.getStartTime() + " по " + overlappedTask.getEndTime();
-                            throw new TaskValidationException(message);
-                        },
-                        () -> prioritizedTasks.add(newTask)
-                );
+    private void throwOverlapping(Task overlappedTask) {
+        String message = "Задача пересекается с id= " + overlappedTask.getID() +
+                " c " + overlappedTask.getStartTime() + " по " + overlappedTask.getEndTime();
+        throw new TaskValidationException(message);
     }
 
     public boolean isOverlapping(Task task1, Task task2) {
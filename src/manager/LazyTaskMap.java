@@ -0,0 +1,216 @@
+package manager;
+
+import models.Task;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Задачи, загруженные из отображённого в память двоичного снимка.
+// До первого обращения задача хранится только как пара (id, смещение записи) в отсортированном массиве,
+// объект Task создаётся в get и дальше живёт в обычной TreeMap.
+// Перебор всех значений (getAllTasks, сохранение снимка) создаёт оставшиеся задачи и отпускает буфер.
+// Буфер корректен, только пока файл не меняется: перед любой записью в него менеджер вызывает materializeAll().
+final class LazyTaskMap extends AbstractMap<Integer, Task> {
+    private final NavigableMap<Integer, Task> materialized = new TreeMap<>();
+    private long[] index = new long[16];
+    private int indexSize;
+    private BitSet consumed;
+    private int pending;
+    private ByteBuffer buffer;
+    private BinaryTaskFormat.StringTable strings;
+
+    void index(int id, int offset) {
+        if (indexSize == index.length) {
+            index = Arrays.copyOf(index, indexSize * 2);
+        }
+        index[indexSize++] = ((long) id << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    void attach(ByteBuffer buffer, BinaryTaskFormat.StringTable strings) {
+        this.buffer = buffer;
+        this.strings = strings;
+        index = Arrays.copyOf(index, indexSize);
+        Arrays.sort(index);
+        consumed = new BitSet(indexSize);
+        pending = indexSize;
+    }
+
+    int maxIndexedID() {
+        return indexSize == 0 ? 0 : (int) (index[indexSize - 1] >> 32);
+    }
+
+    // Убирает задачу из индекса без создания объекта — для записей журнала, перекрывающих снимок.
+    synchronized void discard(int id) {
+        int position = find(id);
+        if (position >= 0) {
+            consume(position);
+        }
+    }
+
+    @Override
+    public synchronized Task get(Object key) {
+        Task task = materialized.get(key);
+        if (task != null || !(key instanceof Integer id)) {
+            return task;
+        }
+
+        int position = find(id);
+        if (position < 0) {
+            return null;
+        }
+        return materialize(position);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return materialized.containsKey(key) || (key instanceof Integer id && find(id) >= 0);
+    }
+
+    // put и remove не создают перекрываемую задачу из записи: они отдают прежнее значение,
+    // только если оно уже создано, иначе null, а запись просто убирают из индекса.
+    @Override
+    public synchronized Task put(Integer key, Task value) {
+        discard(key);
+        return materialized.put(key, value);
+    }
+
+    @Override
+    public synchronized Task remove(Object key) {
+        if (key instanceof Integer id) {
+            discard(id);
+        }
+        return materialized.remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        materialized.clear();
+        release();
+    }
+
+    @Override
+    public synchronized int size() {
+        return materialized.size() + pending;
+    }
+
+    // Перебор идёт по копии, снятой под блокировкой: параллельный get может дописывать в materialized.
+    @Override
+    public synchronized Set<Entry<Integer, Task>> entrySet() {
+        materializeAll();
+        return Collections.unmodifiableMap(new TreeMap<>(materialized)).entrySet();
+    }
+
+    // Создаёт все оставшиеся задачи и отпускает отображение файла.
+    synchronized void materializeAll() {
+        if (pending > 0) {
+            for (int position = consumed.nextClearBit(0); position < indexSize;
+                 position = consumed.nextClearBit(position + 1)) {
+                materialize(position);
+            }
+        }
+        release();
+    }
+
+    // Страница по возрастанию id: слияние созданных задач и индекса, создаются только задачи страницы.
+    synchronized List<Task> page(int afterID, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(limit, 64));
+        List<Integer> positions = new ArrayList<>();
+        Iterator<Task> materializedTasks = materialized.tailMap(afterID, false).values().iterator();
+        Task nextMaterialized = materializedTasks.hasNext() ? materializedTasks.next() : null;
+        int position = pending == 0 ? indexSize : firstPositionAfter(afterID);
+
+        while (page.size() < limit) {
+            if (position < indexSize) {
+                position = consumed.nextClearBit(position);
+            }
+            boolean hasIndexed = position < indexSize;
+            if (!hasIndexed && nextMaterialized == null) {
+                break;
+            }
+
+            if (hasIndexed && (nextMaterialized == null
+                    || (int) (index[position] >> 32) < nextMaterialized.getID())) {
+                positions.add(position++);
+                page.add(null);
+            } else {
+                page.add(nextMaterialized);
+                nextMaterialized = materializedTasks.hasNext() ? materializedTasks.next() : null;
+            }
+        }
+
+        int next = 0;
+        for (int i = 0; i < page.size(); i++) {
+            if (page.get(i) == null) {
+                page.set(i, materialize(positions.get(next++)));
+            }
+        }
+        return page;
+    }
+
+    private int firstPositionAfter(int afterID) {
+        int low = 0;
+        int high = indexSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((int) (index[middle] >> 32) <= afterID) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Task materialize(int position) {
+        int offset = (int) index[position];
+        Task task = BinaryTaskFormat.readTask(buffer.duplicate().position(offset), strings);
+        consume(position);
+        materialized.put(task.getID(), task);
+        return task;
+    }
+
+    private int find(int id) {
+        if (pending == 0) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = indexSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleID = (int) (index[middle] >> 32);
+            if (middleID < id) {
+                low = middle + 1;
+            } else if (middleID > id) {
+                high = middle - 1;
+            } else {
+                return consumed.get(middle) ? -1 : middle;
+            }
+        }
+        return -1;
+    }
+
+    private void consume(int position) {
+        consumed.set(position);
+        pending--;
+    }
+
+    // Когда в индексе не осталось задач, отображение файла больше не нужно.
+    private void release() {
+        index = new long[0];
+        indexSize = 0;
+        consumed = new BitSet();
+        pending = 0;
+        buffer = null;
+        strings = null;
+    }
+}
@@ -7,6 +7,10 @@ public class Managers {
         return new InMemoryTaskManager(historyManager);
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(getDefault());
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
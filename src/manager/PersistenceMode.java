@@ -0,0 +1,10 @@
+package manager;
+
+// PAGED — задачи хранятся записями в файле из слотов (TaskPageFile),
+// при изменении переписываются только записи изменённых задач.
+public enum PersistenceMode {
+    SNAPSHOT,
+    ASYNC_SNAPSHOT,
+    JOURNAL,
+    PAGED
+}
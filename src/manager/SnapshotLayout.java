@@ -0,0 +1,9 @@
+package manager;
+
+// SINGLE_FILE — все задачи в одном файле снимка.
+// SHARDED_BY_TYPE — по файлу на каждый TaskType, файлы пишутся и читаются параллельно,
+// а основной файл хранит только номер текущего поколения файлов.
+public enum SnapshotLayout {
+    SINGLE_FILE,
+    SHARDED_BY_TYPE
+}
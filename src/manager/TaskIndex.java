@@ -0,0 +1,93 @@
+package manager;
+
+import models.Status;
+import models.Task;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Вторичные индексы одной коллекции: статус -> id и время начала -> id.
+// Для каждой задачи запоминаются проиндексированные значения, чтобы при изменении объекта на месте
+// убрать её из старых записей индекса.
+final class TaskIndex {
+    private final Map<Status, NavigableSet<Integer>> byStatus = new EnumMap<>(Status.class);
+    private final NavigableMap<LocalDateTime, NavigableSet<Integer>> byStartTime = new TreeMap<>();
+    private final Map<Integer, Status> indexedStatuses = new HashMap<>();
+    private final Map<Integer, LocalDateTime> indexedStartTimes = new HashMap<>();
+
+    void rebuild(Collection<? extends Task> tasks) {
+        clear();
+        for (Task task : tasks) {
+            update(task);
+        }
+    }
+
+    void clear() {
+        byStatus.clear();
+        byStartTime.clear();
+        indexedStatuses.clear();
+        indexedStartTimes.clear();
+    }
+
+    void update(Task task) {
+        int id = task.getID();
+        Status status = task.getStatus();
+        Status previousStatus = indexedStatuses.put(id, status);
+        if (previousStatus != status) {
+            removeID(byStatus, previousStatus, id);
+            if (status != null) {
+                byStatus.computeIfAbsent(status, key -> new TreeSet<>()).add(id);
+            }
+        }
+
+        LocalDateTime startTime = task.getStartTime();
+        LocalDateTime previousStartTime = startTime != null ? indexedStartTimes.put(id, startTime)
+                : indexedStartTimes.remove(id);
+        if (!Objects.equals(previousStartTime, startTime)) {
+            removeID(byStartTime, previousStartTime, id);
+            if (startTime != null) {
+                byStartTime.computeIfAbsent(startTime, key -> new TreeSet<>()).add(id);
+            }
+        }
+    }
+
+    void remove(int id) {
+        removeID(byStatus, indexedStatuses.remove(id), id);
+        removeID(byStartTime, indexedStartTimes.remove(id), id);
+    }
+
+    Set<Integer> withStatus(Status status) {
+        return byStatus.getOrDefault(status, new TreeSet<>());
+    }
+
+    // Задачи, начинающиеся в [from, to); граница null — без ограничения с этой стороны.
+    Collection<NavigableSet<Integer>> startingBetween(LocalDateTime from, LocalDateTime to) {
+        NavigableMap<LocalDateTime, NavigableSet<Integer>> window = byStartTime;
+        if (from != null) {
+            window = window.tailMap(from, true);
+        }
+        if (to != null) {
+            window = window.headMap(to, false);
+        }
+        return window.values();
+    }
+
+    private static <K> void removeID(Map<K, NavigableSet<Integer>> index, K key, int id) {
+        if (key == null) {
+            return;
+        }
+        NavigableSet<Integer> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
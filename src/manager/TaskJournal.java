@@ -0,0 +1,366 @@
+package manager;
+
+import exceptions.FileInitializationException;
+import exceptions.ManagerSaveException;
+import models.TaskType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Журнал операций: каждая запись — одна строка, дописываемая в конец файла.
+// Форматы записей:
+//   PUT,<строка задачи в формате CSVTaskFormat>
+//   DELETE,<id>
+//   CLEAR,<TaskType>
+final class TaskJournal implements Closeable {
+    static final String PUT = "PUT";
+    static final String DELETE = "DELETE";
+    static final String CLEAR = "CLEAR";
+
+    private static final long DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS = 5;
+    private static final int DEFAULT_GROUP_COMMIT_MAX_RECORDS = 256;
+
+    private final Path path;
+    private final Durability durability;
+    private FileChannel channel;
+    private long recordCount;
+
+    // Запись и force идут параллельно под блокировкой чтения; ротация и закрытие меняют канал под блокировкой записи.
+    private final ReadWriteLock channelLock = new ReentrantReadWriteLock();
+    // Сквозные номера записей: сколько дописано и сколько гарантированно на диске.
+    private final Object commitMonitor = new Object();
+    private long appendedSequence;
+    private long durableSequence;
+    private volatile long groupCommitIntervalMillis = DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS;
+    private volatile int groupCommitMaxRecords = DEFAULT_GROUP_COMMIT_MAX_RECORDS;
+    private volatile boolean running = true;
+    private Thread committer;
+
+    TaskJournal(Path path, Durability durability) {
+        this.path = path;
+        this.durability = durability;
+        try {
+            channel = open(path);
+        } catch (IOException exc) {
+            throw new FileInitializationException("Ошибка открытия журнала: " + exc.getMessage());
+        }
+
+        if (durability == Durability.GROUP_COMMIT) {
+            committer = new Thread(this::runGroupCommit, "journal-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Запись дописывается в конец одним вызовом write, поэтому сбой может оставить только оборванный хвост:
+    // последнюю строку без перевода строки или незакрытое поле в кавычках. Такой хвост отбрасывается,
+    // а файл обрезается до конца последней целой записи, чтобы следующая запись не склеилась с ним.
+    static List<String> readRecords(Path path) {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            // Поле в кавычках может содержать перевод строки: пока кавычки не закрыты, запись продолжается.
+            List<String> records = new ArrayList<>();
+            StringBuilder open = null;
+            int complete = 0;
+            int start = 0;
+            while (start < bytes.length) {
+                int end = start;
+                while (end < bytes.length && bytes[end] != '\n') {
+                    end++;
+                }
+                if (end == bytes.length) {
+                    break;
+                }
+                String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                start = end + 1;
+
+                if (open != null) {
+                    open.append('\n').append(line);
+                    if (hasOddQuotes(line)) {
+                        records.add(open.toString());
+                        open = null;
+                        complete = start;
+                    }
+                } else if (hasOddQuotes(line)) {
+                    open = new StringBuilder(line);
+                } else {
+                    if (!line.isBlank()) {
+                        records.add(line);
+                    }
+                    complete = start;
+                }
+            }
+
+            if (complete < bytes.length) {
+                truncate(path, complete);
+            }
+            return records;
+        } catch (IOException exc) {
+            throw new FileInitializationException("Ошибка чтения журнала: " + exc.getMessage());
+        }
+    }
+
+    // Отбрасывает последнюю запись журнала, которая оказалась неполной (например, в ней не хватает полей).
+    // record — текст этой записи, как его вернул readRecords.
+    static void dropLastRecord(Path path, String record) {
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            int end = bytes.length;
+            while (end > 0 && Character.isWhitespace(bytes[end - 1])) {
+                end--;
+            }
+            truncate(path, Math.max(0, end - record.getBytes(StandardCharsets.UTF_8).length));
+        } catch (IOException exc) {
+            throw new FileInitializationException("Ошибка чтения журнала: " + exc.getMessage());
+        }
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static boolean hasOddQuotes(String line) {
+        boolean odd = false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    static String putRecord(String csvLine) {
+        return PUT + "," + csvLine;
+    }
+
+    static String deleteRecord(int id) {
+        return DELETE + "," + id;
+    }
+
+    static String clearRecord(TaskType taskType) {
+        return CLEAR + "," + taskType.name();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void setRecordCount(long recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    long size() {
+        try {
+            return channel.size();
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка чтения размера журнала: " + exc.getMessage());
+        }
+    }
+
+    void setGroupCommit(long intervalMillis, int maxRecords) {
+        this.groupCommitIntervalMillis = intervalMillis;
+        this.groupCommitMaxRecords = maxRecords;
+    }
+
+    // Возвращает номер записи, который можно передать в awaitDurable.
+    long append(String record) {
+        return append(List.of(record));
+    }
+
+    // Пакет записей уходит одной записью в канал и, в режиме FSYNC, одним force.
+    // Возвращает номер последней записи.
+    long append(List<String> records) {
+        StringBuilder text = new StringBuilder();
+        for (String record : records) {
+            text.append(record).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        long sequence;
+        channelLock.readLock().lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            recordCount += records.size();
+            synchronized (commitMonitor) {
+                long pendingBefore = appendedSequence - durableSequence;
+                appendedSequence += records.size();
+                sequence = appendedSequence;
+                long pending = appendedSequence - durableSequence;
+                // Будим фиксатор на первой неподтверждённой записи и на полной пачке.
+                if (pendingBefore == 0 || pending >= groupCommitMaxRecords) {
+                    commitMonitor.notifyAll();
+                }
+            }
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка записи в журнал: " + exc.getMessage());
+        } finally {
+            channelLock.readLock().unlock();
+        }
+
+        if (durability == Durability.FSYNC) {
+            force();
+        }
+        return sequence;
+    }
+
+    // В режиме GROUP_COMMIT блокирует поток, пока запись с номером sequence не окажется на диске.
+    // В режиме FSYNC запись уже на диске, в режиме ASYNC надёжность не гарантируется.
+    void awaitDurable(long sequence) {
+        if (durability != Durability.GROUP_COMMIT) {
+            return;
+        }
+
+        synchronized (commitMonitor) {
+            while (durableSequence < sequence && running) {
+                try {
+                    commitMonitor.wait();
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (durableSequence() < sequence) {
+            force();
+        }
+    }
+
+    private long durableSequence() {
+        synchronized (commitMonitor) {
+            return durableSequence;
+        }
+    }
+
+    void force() {
+        long target;
+        synchronized (commitMonitor) {
+            target = appendedSequence;
+        }
+
+        channelLock.readLock().lock();
+        try {
+            channel.force(false);
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка сброса журнала на диск: " + exc.getMessage());
+        } finally {
+            channelLock.readLock().unlock();
+        }
+
+        synchronized (commitMonitor) {
+            durableSequence = Math.max(durableSequence, target);
+            commitMonitor.notifyAll();
+        }
+    }
+
+    // Групповая фиксация: после первой неподтверждённой записи ждём интервал (или полную пачку)
+    // и одним force подтверждаем всё, что успели дописать все писатели.
+    private void runGroupCommit() {
+        while (running) {
+            synchronized (commitMonitor) {
+                try {
+                    while (running && appendedSequence == durableSequence) {
+                        commitMonitor.wait();
+                    }
+                    if (running && appendedSequence - durableSequence < groupCommitMaxRecords) {
+                        commitMonitor.wait(groupCommitIntervalMillis);
+                    }
+                } catch (InterruptedException exc) {
+                    return;
+                }
+            }
+
+            try {
+                force();
+            } catch (ManagerSaveException exc) {
+                System.err.println(exc.getMessage());
+            }
+        }
+    }
+
+    void reset() {
+        channelLock.writeLock().lock();
+        try {
+            channel.truncate(0);
+            recordCount = 0;
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка очистки журнала: " + exc.getMessage());
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    // Переносит накопленные записи в rotatedPath и начинает журнал заново.
+    // Если rotatedPath остался от незавершённого сжатия, записи дописываются в его конец.
+    void rotate(Path rotatedPath) {
+        force();
+        channelLock.writeLock().lock();
+        try {
+            channel.close();
+            if (Files.exists(rotatedPath)) {
+                Files.write(rotatedPath, Files.readAllBytes(path), StandardOpenOption.APPEND);
+                Files.delete(path);
+            } else {
+                Files.move(path, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            channel = open(path);
+            recordCount = 0;
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка ротации журнала: " + exc.getMessage());
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (durability != Durability.ASYNC) {
+            force();
+        }
+        running = false;
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        channelLock.writeLock().lock();
+        try {
+            channel.close();
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка закрытия журнала: " + exc.getMessage());
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package manager;
 
+import models.BatchOperation;
+import models.BatchResult;
 import models.Epic;
 import models.Subtask;
 import models.Task;
+import models.TaskFilter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,4 +53,43 @@ public interface TaskManager {
     List<Task> getHistory();
 
     List<Task> getPrioritizedTasks();
+
+    // Постраничный обход: не больше limit задач с id больше afterID в порядке возрастания id.
+    // Для первой страницы afterID = 0, для следующей — id последней задачи предыдущей страницы.
+    List<Task> getTasksPage(int afterID, int limit);
+
+    List<Epic> getEpicsPage(int afterID, int limit);
+
+    List<Subtask> getSubtasksPage(int afterID, int limit);
+
+    // История идёт в порядке просмотров: afterID — id последней задачи предыдущей страницы.
+    List<Task> getHistoryPage(int afterID, int limit);
+
+    // Выборка по статусу, эпику и окну времени начала через индексы, в порядке возрастания id.
+    List<Task> findTasks(TaskFilter filter);
+
+    List<Epic> findEpics(TaskFilter filter);
+
+    List<Subtask> findSubtasks(TaskFilter filter);
+
+    // Пакет создания, изменения и удаления задач: результат на каждую операцию в том же порядке.
+    // Реализации выполняют пакет под одной блокировкой и сохраняют его на диск один раз.
+    List<BatchResult> applyBatch(List<BatchOperation> operations);
+
+    // Версии для условных GET: значение растёт при каждом изменении соответствующих данных
+    // и не меняется, пока данные те же. Версия отдельной задачи — Task.getVersion().
+    long getTasksVersion();
+
+    long getEpicsVersion();
+
+    long getSubtasksVersion();
+
+    long getHistoryVersion();
+
+    long getPrioritizedVersion();
+
+    // Ждёт, пока изменения, сделанные текущим потоком, будут сохранены надёжно.
+    // Менеджеры без отложенного сохранения ничего не делают.
+    default void awaitDurable() {
+    }
 }
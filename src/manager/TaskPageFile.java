@@ -0,0 +1,268 @@
+package manager;
+
+import exceptions.FileInitializationException;
+import exceptions.ManagerSaveException;
+import models.TaskType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Файл задач из слотов по SLOT_SIZE байт; первый слот — заголовок с сигнатурой "KNPG".
+// Запись занимает несколько слотов подряд:
+//   состояние (1 — занят), тип задачи, версия (long), id (int), длина (int), crc32 (int), CSV-строка в UTF-8.
+// Изменённая задача пишется новой версией в свободные слоты или в конец файла, после чего старые слоты
+// обнуляются. Сбой посередине оставляет старую или новую версию: при чтении побеждает большая версия,
+// а недописанная запись отбрасывается по crc.
+final class TaskPageFile implements Closeable {
+    static final int SLOT_SIZE = 128;
+    private static final byte[] MAGIC = {'K', 'N', 'P', 'G'};
+    private static final byte USED = 1;
+    private static final int RECORD_HEADER_SIZE = 1 + 1 + 8 + 4 + 4 + 4;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+
+    private final FileChannel channel;
+    private final boolean sync;
+    // id -> {первый слот, количество слотов, ordinal типа}
+    private final Map<Integer, int[]> extents = new HashMap<>();
+    private final BitSet usedSlots = new BitSet();
+    private int slotCount;
+    private long version;
+
+    TaskPageFile(Path path, boolean sync) {
+        this.sync = sync;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException exc) {
+            throw new FileInitializationException("Ошибка открытия файла задач: " + exc.getMessage());
+        }
+    }
+
+    static boolean isPageFile(ByteBuffer header) {
+        if (header.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(header.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Очищает файл и записывает заголовок.
+    void reset() {
+        try {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(SLOT_SIZE);
+            header.put(MAGIC);
+            header.clear();
+            writeFully(header, 0);
+            if (sync) {
+                channel.force(true);
+            }
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
+        }
+        extents.clear();
+        usedSlots.clear();
+        slotCount = 0;
+        version = 0;
+    }
+
+    // Читает последние версии всех записей и строит карту занятых слотов.
+    // Проигравшие версии, оставшиеся после сбоя, освобождаются.
+    List<String> readAll() {
+        Map<Integer, String> records = new HashMap<>();
+        List<int[]> stale = new ArrayList<>();
+        try {
+            long size = channel.size();
+            slotCount = (int) Math.max(0, (size - SLOT_SIZE + SLOT_SIZE - 1) / SLOT_SIZE);
+            if (size <= SLOT_SIZE) {
+                return new ArrayList<>();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Map<Integer, Long> versions = new HashMap<>();
+
+            int slot = 0;
+            while (slot < slotCount) {
+                int position = SLOT_SIZE + slot * SLOT_SIZE;
+                int length = recordLength(buffer, position, size);
+                if (length < 0) {
+                    slot++;
+                    continue;
+                }
+
+                int slots = slotsFor(length);
+                long recordVersion = buffer.getLong(position + 2);
+                int id = buffer.getInt(position + 10);
+                int[] extent = {slot, slots, buffer.get(position + 1)};
+                Long previousVersion = versions.get(id);
+                if (previousVersion == null || previousVersion < recordVersion) {
+                    if (previousVersion != null) {
+                        stale.add(extents.get(id));
+                    }
+                    byte[] bytes = new byte[length];
+                    buffer.get(position + RECORD_HEADER_SIZE, bytes);
+                    records.put(id, new String(bytes, StandardCharsets.UTF_8));
+                    versions.put(id, recordVersion);
+                    extents.put(id, extent);
+                } else {
+                    stale.add(extent);
+                }
+                usedSlots.set(slot, slot + slots);
+                version = Math.max(version, recordVersion);
+                slot += slots;
+            }
+        } catch (IOException exc) {
+            throw new FileInitializationException("Ошибка чтения файла задач: " + exc.getMessage());
+        }
+
+        for (int[] extent : stale) {
+            release(extent);
+        }
+        return new ArrayList<>(records.values());
+    }
+
+    // Длина CSV-строки записи, начинающейся в position, или -1, если слот свободен или запись повреждена.
+    private static int recordLength(ByteBuffer buffer, int position, long size) {
+        if (position + RECORD_HEADER_SIZE > size || buffer.get(position) != USED) {
+            return -1;
+        }
+        int length = buffer.getInt(position + 14);
+        if (length < 0 || position + RECORD_HEADER_SIZE + (long) length > size) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position + 1, RECORD_HEADER_SIZE - 5));
+        crc.update(buffer.slice(position + RECORD_HEADER_SIZE, length));
+        return (int) crc.getValue() == buffer.getInt(position + 18) ? length : -1;
+    }
+
+    void write(int id, TaskType taskType, String csvLine) {
+        byte[] bytes = csvLine.getBytes(StandardCharsets.UTF_8);
+        int slots = slotsFor(bytes.length);
+        ByteBuffer record = ByteBuffer.allocate(slots * SLOT_SIZE);
+        record.put(USED);
+        record.put((byte) taskType.ordinal());
+        record.putLong(++version);
+        record.putInt(id);
+        record.putInt(bytes.length);
+        int crcPosition = record.position();
+        record.putInt(0);
+        record.put(bytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 1, RECORD_HEADER_SIZE - 5);
+        crc.update(bytes);
+        record.putInt(crcPosition, (int) crc.getValue());
+        record.clear();
+
+        int slot = allocate(slots);
+        try {
+            writeFully(record, slotPosition(slot));
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
+        }
+        int[] previous = extents.put(id, new int[]{slot, slots, taskType.ordinal()});
+        if (previous != null) {
+            // Старая версия стирается только после того, как новая дошла до диска.
+            if (sync) {
+                force();
+            }
+            release(previous);
+        }
+    }
+
+    void delete(int id) {
+        int[] extent = extents.remove(id);
+        if (extent != null) {
+            release(extent);
+        }
+    }
+
+    List<Integer> ids(TaskType taskType) {
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : extents.entrySet()) {
+            if (TASK_TYPES[entry.getValue()[2]] == taskType) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+
+    void force() {
+        try {
+            channel.force(false);
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
+        }
+    }
+
+    long size() {
+        try {
+            return channel.size();
+        } catch (IOException exc) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка закрытия файла задач: " + exc.getMessage());
+        }
+    }
+
+    // Первый подходящий участок свободных слотов, иначе конец файла.
+    private int allocate(int slots) {
+        int start = usedSlots.nextClearBit(0);
+        while (start + slots <= slotCount) {
+            int nextUsed = usedSlots.nextSetBit(start);
+            if (nextUsed < 0 || nextUsed >= start + slots) {
+                break;
+            }
+            start = usedSlots.nextClearBit(nextUsed);
+        }
+        usedSlots.set(start, start + slots);
+        slotCount = Math.max(slotCount, start + slots);
+        return start;
+    }
+
+    private void release(int[] extent) {
+        try {
+            writeFully(ByteBuffer.allocate(extent[1] * SLOT_SIZE), slotPosition(extent[0]));
+        } catch (IOException exc) {
+            throw new ManagerSaveException("Ошибка при сохранении в файл: " + exc.getMessage());
+        }
+        usedSlots.clear(extent[0], extent[0] + extent[1]);
+    }
+
+    private static int slotsFor(int length) {
+        return (RECORD_HEADER_SIZE + length + SLOT_SIZE - 1) / SLOT_SIZE;
+    }
+
+    private static long slotPosition(int slot) {
+        return SLOT_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
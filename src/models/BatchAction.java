@@ -0,0 +1,7 @@
+package models;
+
+public enum BatchAction {
+    CREATE,
+    UPDATE,
+    DELETE
+}
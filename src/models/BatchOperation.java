@@ -0,0 +1,32 @@
+package models;
+
+// Одна операция пакета: для CREATE нужна задача, для UPDATE — задача и id, для DELETE — только id.
+public class BatchOperation {
+    private final BatchAction action;
+    private final TaskType type;
+    private final Integer id;
+    private final Task task;
+
+    public BatchOperation(BatchAction action, TaskType type, Integer id, Task task) {
+        this.action = action;
+        this.type = type;
+        this.id = id;
+        this.task = task;
+    }
+
+    public BatchAction getAction() {
+        return action;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public Integer getID() {
+        return id;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+}
@@ -0,0 +1,26 @@
+package models;
+
+// Результат операции пакета: код как у одиночного HTTP-запроса, id задачи и сообщение об ошибке.
+public class BatchResult {
+    private final int status;
+    private final Integer id;
+    private final String message;
+
+    public BatchResult(int status, Integer id, String message) {
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Integer getID() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -3,11 +3,25 @@ package models;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Epic extends Task {
     ArrayList<Integer> subtaskIDs = new ArrayList<>();
     private LocalDateTime endTime;
+    // Счётчики статусов подзадач: статус эпика пересчитывается за O(1) без обхода подзадач.
+    // Поля transient, чтобы не попадать в JSON; карта создаётся лениво, т.к. Gson не вызывает конструктор.
+    private transient Map<Integer, Status> subtaskStatuses;
+    private transient int newCount;
+    private transient int inProgressCount;
+    private transient int doneCount;
+    // Мультимножества начала и окончания подзадач (время -> количество) и их суммарная длительность:
+    // startTime, endTime и duration эпика обновляются за O(log k) при изменении одной подзадачи.
+    private transient TreeMap<LocalDateTime, Integer> subtaskStartTimes;
+    private transient TreeMap<LocalDateTime, Integer> subtaskEndTimes;
+    private transient Duration subtasksDuration;
 
     public Epic(String name, String description, Status status) {
         super(name, description, status);
@@ -21,6 +35,95 @@ public class Epic extends Task {
         this.subtaskIDs = subtaskIDs;
     }
 
+    public void updateSubtaskStatus(int subtaskID, Status status) {
+        // Статус подзадачи может быть null, поэтому наличие записи проверяется отдельно.
+        boolean known = getSubtaskStatuses().containsKey(subtaskID);
+        Status previousStatus = subtaskStatuses.put(subtaskID, status);
+        if (known) {
+            changeStatusCounter(previousStatus, -1);
+        }
+        changeStatusCounter(status, 1);
+        refreshStatus();
+    }
+
+    public void removeSubtaskStatus(int subtaskID) {
+        if (getSubtaskStatuses().containsKey(subtaskID)) {
+            changeStatusCounter(subtaskStatuses.remove(subtaskID), -1);
+        }
+        refreshStatus();
+    }
+
+    public void clearSubtaskStatuses() {
+        getSubtaskStatuses().clear();
+        newCount = 0;
+        inProgressCount = 0;
+        doneCount = 0;
+        refreshStatus();
+    }
+
+    // Пересчитывает статус и время эпика по полному списку подзадач за один проход — для массовой загрузки.
+    // Как и при поштучном добавлении, статус меняется только при наличии подзадач, время — при наличии подзадач со временем.
+    public void rebuildSubtasks(List<Subtask> subtasks) {
+        subtaskIDs = new ArrayList<>(subtasks.size());
+        getSubtaskStatuses().clear();
+        newCount = 0;
+        inProgressCount = 0;
+        doneCount = 0;
+        getSubtaskStartTimes().clear();
+        getSubtaskEndTimes().clear();
+        subtasksDuration = Duration.ZERO;
+
+        for (Subtask subtask : subtasks) {
+            subtaskIDs.add(subtask.getID());
+            subtaskStatuses.put(subtask.getID(), subtask.getStatus());
+            changeStatusCounter(subtask.getStatus(), 1);
+            if (subtask.getStartTime() != null && subtask.getDuration() != null) {
+                subtaskStartTimes.merge(subtask.getStartTime(), 1, Integer::sum);
+                subtaskEndTimes.merge(subtask.getEndTime(), 1, Integer::sum);
+                subtasksDuration = subtasksDuration.plus(subtask.getDuration());
+            }
+        }
+
+        if (!subtasks.isEmpty()) {
+            refreshStatus();
+        }
+        if (!subtaskStartTimes.isEmpty()) {
+            refreshTimes();
+        }
+    }
+
+    private Map<Integer, Status> getSubtaskStatuses() {
+        if (subtaskStatuses == null) {
+            subtaskStatuses = new HashMap<>();
+        }
+        return subtaskStatuses;
+    }
+
+    // Подзадача без статуса, как и раньше, не считается ни новой, ни завершённой — эпик будет IN_PROGRESS.
+    private void changeStatusCounter(Status status, int delta) {
+        if (status == null) {
+            inProgressCount += delta;
+            return;
+        }
+        switch (status) {
+            case NEW -> newCount += delta;
+            case IN_PROGRESS -> inProgressCount += delta;
+            case DONE -> doneCount += delta;
+        }
+    }
+
+    private void refreshStatus() {
+        int total = newCount + inProgressCount + doneCount;
+
+        if (newCount == total) {
+            setStatus(Status.NEW);
+        } else if (doneCount == total) {
+            setStatus(Status.DONE);
+        } else {
+            setStatus(Status.IN_PROGRESS);
+        }
+    }
+
     @Override
     public TaskType getType() {
         return TaskType.EPIC;
@@ -31,39 +134,74 @@ public class Epic extends Task {
         return endTime;
     }
 
-    public void updateEpicTimesFields(List<Subtask> subtasks) {
+    // Для восстановления эпика из JSON; в менеджере endTime пересчитывается по подзадачам.
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
 
-        if (subtasks == null || subtasks.isEmpty()) {
-            this.setStartTime(null);
-            this.endTime = null;
-            this.setDuration(Duration.ZERO);
+    public void addSubtaskTimes(Subtask subtask) {
+        if (subtask.getStartTime() == null || subtask.getDuration() == null) {
             return;
         }
 
-        List<Subtask> subtasksWithTime = subtasks.stream()
-                .filter(subtask -> subtask.getStartTime() != null && subtask.getDuration() != null)
-                .toList();
+        getSubtaskStartTimes().merge(subtask.getStartTime(), 1, Integer::sum);
+        getSubtaskEndTimes().merge(subtask.getEndTime(), 1, Integer::sum);
+        subtasksDuration = getSubtasksDuration().plus(subtask.getDuration());
+        refreshTimes();
+    }
+
+    public void removeSubtaskTimes(Subtask subtask) {
+        if (subtask.getStartTime() == null || subtask.getDuration() == null) {
+            return;
+        }
+
+        removeTime(getSubtaskStartTimes(), subtask.getStartTime());
+        removeTime(getSubtaskEndTimes(), subtask.getEndTime());
+        subtasksDuration = getSubtasksDuration().minus(subtask.getDuration());
+        refreshTimes();
+    }
+
+    public void clearSubtaskTimes() {
+        getSubtaskStartTimes().clear();
+        getSubtaskEndTimes().clear();
+        subtasksDuration = Duration.ZERO;
+        refreshTimes();
+    }
+
+    private TreeMap<LocalDateTime, Integer> getSubtaskStartTimes() {
+        if (subtaskStartTimes == null) {
+            subtaskStartTimes = new TreeMap<>();
+        }
+        return subtaskStartTimes;
+    }
+
+    private TreeMap<LocalDateTime, Integer> getSubtaskEndTimes() {
+        if (subtaskEndTimes == null) {
+            subtaskEndTimes = new TreeMap<>();
+        }
+        return subtaskEndTimes;
+    }
+
+    private Duration getSubtasksDuration() {
+        if (subtasksDuration == null) {
+            subtasksDuration = Duration.ZERO;
+        }
+        return subtasksDuration;
+    }
+
+    private void removeTime(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+    }
 
-        if (subtasksWithTime.isEmpty()) {
+    private void refreshTimes() {
+        if (getSubtaskStartTimes().isEmpty()) {
             this.setStartTime(null);
             this.endTime = null;
             this.setDuration(Duration.ZERO);
         } else {
-            LocalDateTime newStartTime = subtasksWithTime.stream()
-                    .map(Subtask::getStartTime)
-                    .min(LocalDateTime::compareTo)
-                    .orElse(null);
-            this.setStartTime(newStartTime);
-
-            this.endTime = subtasksWithTime.stream()
-                    .map(Subtask::getEndTime)
-                    .max(LocalDateTime::compareTo)
-                    .orElse(null);
-
-            Duration newDuration = subtasksWithTime.stream()
-                    .map(Subtask::getDuration)
-                    .reduce(Duration.ZERO, Duration::plus);
-            this.setDuration(newDuration);
+            this.setStartTime(subtaskStartTimes.firstKey());
+            this.endTime = getSubtaskEndTimes().lastKey();
+            this.setDuration(getSubtasksDuration());
         }
     }
 }
@@ -10,6 +10,8 @@ public class Task {
     private Status status;
     private LocalDateTime startTime;
     private Duration duration;
+    // Версия задачи в менеджере для ETag; в JSON и файлы не попадает.
+    private transient long version;
 
     public Task(String name, String description, Status status) {
         this.name = name;
@@ -29,6 +31,11 @@ public class Task {
         return id;
     }
 
+    // id ещё не назначен менеджером (например, у задачи из тела запроса на создание).
+    public boolean hasID() {
+        return id != null;
+    }
+
     public Status getStatus() {
         return status;
     }
@@ -49,6 +56,14 @@ public class Task {
         this.status = status;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public TaskType getType() {
         return TaskType.TASK;
     }
@@ -0,0 +1,56 @@
+package models;
+
+import java.time.LocalDateTime;
+
+// Условия выборки задач; null означает, что условие не задано.
+// Время начала задачи должно попадать в [from, to), epicID учитывается только для подзадач.
+public class TaskFilter {
+    private final Status status;
+    private final Integer epicID;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    public TaskFilter(Status status, Integer epicID, LocalDateTime from, LocalDateTime to) {
+        this.status = status;
+        this.epicID = epicID;
+        this.from = from;
+        this.to = to;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Integer getEpicID() {
+        return epicID;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public boolean hasTimeWindow() {
+        return from != null || to != null;
+    }
+
+    public boolean matches(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (epicID != null && (!(task instanceof Subtask subtask) || subtask.getEpicID() != epicID)) {
+            return false;
+        }
+        if (hasTimeWindow()) {
+            LocalDateTime startTime = task.getStartTime();
+            if (startTime == null || (from != null && startTime.isBefore(from))
+                    || (to != null && !startTime.isBefore(to))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
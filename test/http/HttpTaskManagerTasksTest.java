@@ -1,8 +1,12 @@
 package http;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import http.adapter.DurationAdapter;
+import http.adapter.LocalDateTimeAdapter;
 import manager.Managers;
 import manager.TaskManager;
+import models.BatchResult;
 import models.Epic;
 import models.Status;
 import models.Subtask;
@@ -11,16 +15,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -458,6 +466,35 @@ public class HttpTaskManagerTasksTest {
         assertEquals(0, history.length, "История должна быть пустой");
     }
 
+    @Test
+    public void testHistoryAndTasksStayConsistentAfterUpdate() throws IOException, InterruptedException {
+        Task task = new Task("Task 1", "Description 1", Status.NEW);
+        int taskId = manager.addTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI tasksUrl = URI.create("http://localhost:8080/tasks");
+        URI historyUrl = URI.create("http://localhost:8080/history");
+        HttpRequest tasksRequest = HttpRequest.newBuilder().uri(tasksUrl).GET().build();
+        HttpRequest historyRequest = HttpRequest.newBuilder().uri(historyUrl).GET().build();
+
+        manager.getTaskByID(taskId);
+        client.send(tasksRequest, HttpResponse.BodyHandlers.ofString());
+        client.send(historyRequest, HttpResponse.BodyHandlers.ofString());
+
+        Task updated = new Task("Task 1 updated", "Description 1", Status.DONE);
+        updated.setID(taskId);
+        manager.updateTask(updated);
+        manager.getTaskByID(taskId);
+
+        HttpResponse<String> history = client.send(historyRequest, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> tasks = client.send(tasksRequest, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("Task 1 updated", gson.fromJson(history.body(), Task[].class)[0].getName(),
+                "История отдаёт устаревшую задачу");
+        assertEquals("Task 1 updated", gson.fromJson(tasks.body(), Task[].class)[0].getName(),
+                "Список задач отдаёт устаревшую задачу");
+    }
+
     @Test
     public void testGetPrioritizedTasks() throws IOException, InterruptedException {
         Task task1 = new Task("Task 1", "Description 1", Status.NEW);
@@ -653,4 +690,311 @@ public class HttpTaskManagerTasksTest {
         HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
         assertEquals(404, response.statusCode(), "Должен возвращаться 404 для несуществующей задачи");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetAllTasksIsStreamedInChunks() throws IOException, InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            manager.addTask(new Task("Task " + i, "Description " + i, Status.NEW));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080/tasks");
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("chunked", response.headers().firstValue("Transfer-Encoding").orElse(null),
+                "Список должен отправляться частями");
+        assertTrue(response.headers().firstValue("Content-Length").isEmpty());
+
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(500, tasks.length, "Некорректное количество задач");
+        assertEquals("Task 499", tasks[499].getName());
+    }
+
+    @Test
+    public void testGetTasksByPages() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            manager.addTask(new Task("Task " + i, "Description " + i, Status.NEW));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> firstPage = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=3"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String cursor = firstPage.headers().firstValue("X-Next-Cursor").orElse(null);
+        HttpResponse<String> secondPage = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=3&cursor=" + cursor))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> badLimit = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=0"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, firstPage.statusCode());
+        assertEquals(3, gson.fromJson(firstPage.body(), Task[].class).length);
+        assertNotNull(cursor, "У полной страницы должен быть курсор следующей");
+        Task[] secondTasks = gson.fromJson(secondPage.body(), Task[].class);
+        assertEquals(2, secondTasks.length);
+        assertEquals("Task 3", secondTasks[0].getName());
+        assertTrue(secondPage.headers().firstValue("X-Next-Cursor").isEmpty(), "Последняя страница без курсора");
+        assertEquals(400, badLimit.statusCode());
+    }
+
+    @Test
+    public void testConditionalGetReturnsNotModifiedUntilTasksChange() throws IOException, InterruptedException {
+        int id = manager.addTask(new Task("Task", "Description", Status.NEW));
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080/tasks");
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag, "Список должен отдаваться с ETag");
+
+        HttpResponse<String> notModified = client.send(HttpRequest.newBuilder().uri(url)
+                .header("If-None-Match", etag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+        assertEquals(etag, notModified.headers().firstValue("ETag").orElse(null));
+
+        Task updated = new Task("Task", "New description", Status.DONE);
+        updated.setID(id);
+        manager.updateTask(updated);
+        HttpResponse<String> changed = client.send(HttpRequest.newBuilder().uri(url)
+                .header("If-None-Match", etag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertEquals(Status.DONE, gson.fromJson(changed.body(), Task[].class)[0].getStatus());
+
+        URI taskUrl = URI.create("http://localhost:8080/tasks/" + id);
+        String taskEtag = client.send(HttpRequest.newBuilder().uri(taskUrl).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).headers().firstValue("ETag").orElse(null);
+        HttpResponse<String> taskNotModified = client.send(HttpRequest.newBuilder().uri(taskUrl)
+                .header("If-None-Match", taskEtag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, taskNotModified.statusCode());
+    }
+
+    @Test
+    public void testLargeListIsGzippedWhenClientAcceptsIt() throws IOException, InterruptedException {
+        manager.addTask(new Task("Task", "Description", Status.NEW));
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080/tasks");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).header("Accept-Encoding", "gzip").GET().build();
+
+        HttpResponse<String> small = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty(), "Короткий ответ не сжимается");
+        assertFalse(small.headers().firstValue("ETag").orElseThrow().contains("-gzip"),
+                "У несжатого тела не должно быть тега сжатого представления");
+        assertEquals(1, gson.fromJson(small.body(), Task[].class).length);
+
+        for (int i = 0; i < 500; i++) {
+            manager.addTask(new Task("Task " + i, "Description " + i, Status.NEW));
+        }
+        HttpResponse<byte[]> large = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, large.statusCode());
+        assertEquals("gzip", large.headers().firstValue("Content-Encoding").orElse(null));
+        String gzipEtag = large.headers().firstValue("ETag").orElseThrow();
+        assertTrue(gzipEtag.endsWith("-gzip\""), "У сжатого тела свой ETag");
+        HttpResponse<String> notModified = client.send(HttpRequest.newBuilder().uri(url)
+                .header("Accept-Encoding", "gzip").header("If-None-Match", gzipEtag).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals(gzipEtag, notModified.headers().firstValue("ETag").orElse(null));
+
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(large.body()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(large.body().length * 5 < body.length(), "Сжатие должно заметно уменьшать ответ");
+        assertEquals(501, gson.fromJson(body, Task[].class).length);
+    }
+
+    @Test
+    public void testBatchAppliesAllOperations() throws IOException, InterruptedException {
+        int epicID = manager.addEpic(new Epic("Epic", "Description", Status.NEW));
+        String body = "[" +
+                "{\"action\": \"CREATE\", \"type\": \"TASK\", \"task\": " +
+                gson.toJson(new Task("Task", "Description", Status.NEW)) + "}," +
+                "{\"action\": \"CREATE\", \"type\": \"SUBTASK\", \"task\": " +
+                gson.toJson(new Subtask("Subtask", "Description", Status.DONE, epicID)) + "}," +
+                "{\"action\": \"DELETE\", \"type\": \"TASK\", \"id\": 999}" +
+                "]";
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> badBody = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"action\": \"CREATE\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        BatchResult[] results = gson.fromJson(response.body(), BatchResult[].class);
+        assertEquals(3, results.length);
+        assertEquals(201, results[0].getStatus());
+        assertEquals(201, results[1].getStatus());
+        assertEquals(404, results[2].getStatus());
+        assertEquals(1, manager.getAllTasks().size());
+        assertEquals(Status.DONE, manager.getEpicByID(epicID).getStatus());
+        assertEquals(400, badBody.statusCode());
+    }
+
+    @Test
+    public void testSubtasksAreFilteredByQuery() throws IOException, InterruptedException {
+        int epicID = manager.addEpic(new Epic("Epic", "Description", Status.NEW));
+        for (int i = 0; i < 4; i++) {
+            Subtask subtask = new Subtask("Subtask " + i, "Description", i < 2 ? Status.IN_PROGRESS : Status.NEW,
+                    epicID);
+            subtask.setStartTime(LocalDateTime.of(2025, 3, 3 + i * 3, 9, 0));
+            subtask.setDuration(Duration.ofMinutes(15));
+            manager.addSubtask(subtask);
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks?status=IN_PROGRESS&from=2025-03-03&to=2025-03-10"
+                        + "&epic=" + epicID))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> badStatus = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=OPEN"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        Subtask[] subtasks = gson.fromJson(response.body(), Subtask[].class);
+        assertEquals(2, subtasks.length);
+        assertEquals("Subtask 1", subtasks[1].getName());
+        assertEquals(400, badStatus.statusCode());
+    }
+
+    @Test
+    public void testListReturnsOnlyRequestedFields() throws IOException, InterruptedException {
+        Task task = new Task("Task", "Long description", Status.IN_PROGRESS);
+        task.setStartTime(LocalDateTime.of(2025, 3, 3, 9, 0));
+        task.setDuration(Duration.ofMinutes(45));
+        int id = manager.addTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?fields=id,name,status"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> prioritized = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?fields=id,startTime,endTime"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> unknownField = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?fields=id,owner"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("[{\"id\":" + id + ",\"name\":\"Task\",\"status\":\"IN_PROGRESS\"}]", response.body());
+        assertEquals("[{\"id\":" + id + ",\"startTime\":\"03.03.25: 09:00\",\"endTime\":\"03.03.25: 09:45\"}]",
+                prioritized.body());
+        assertEquals(400, unknownField.statusCode());
+    }
+
+    @Test
+    public void testRouterMatchesTemplatesAndRejectsUnknownRequests() throws IOException, InterruptedException {
+        Task task = new Task("Task", "Description", Status.NEW);
+        int id = manager.addTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> byID = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + id + "/"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> badID = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/abc"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> unknownPath = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + id + "/subtasks"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> unknownMethod = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + id))
+                .PUT(HttpRequest.BodyPublishers.ofString("{}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> deleteList = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/history"))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, byID.statusCode());
+        assertEquals(id, gson.fromJson(byID.body(), Task.class).getID());
+        assertEquals(400, badID.statusCode(), "ID не число — 400");
+        assertEquals(404, unknownPath.statusCode(), "Маршрут не задан — 404");
+        assertEquals(405, unknownMethod.statusCode(), "Неизвестный метод — 405");
+        assertEquals(405, deleteList.statusCode(), "Метод не задан для маршрута — 405");
+        assertTrue(deleteList.body().contains("\"url\":\"/history\""), "В ответе 405 должен быть путь запроса");
+    }
+
+    @Test
+    public void testCachedJsonFollowsTaskChanges() throws IOException, InterruptedException {
+        int epicID = manager.addEpic(new Epic("Epic", "Description", Status.NEW));
+        int subtaskID = manager.addSubtask(new Subtask("Subtask", "Description", Status.NEW, epicID));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest epicsRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/epics"))
+                .GET()
+                .build();
+        HttpRequest epicRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/epics/" + epicID))
+                .GET()
+                .build();
+        HttpResponse<String> before = client.send(epicsRequest, HttpResponse.BodyHandlers.ofString());
+        assertEquals(before.body(), client.send(epicsRequest, HttpResponse.BodyHandlers.ofString()).body());
+        assertEquals("[" + client.send(epicRequest, HttpResponse.BodyHandlers.ofString()).body() + "]",
+                before.body(), "Список должен состоять из тех же фрагментов, что и ответы по id");
+
+        Subtask done = new Subtask("Subtask", "Description", Status.DONE, epicID);
+        done.setID(subtaskID);
+        manager.updateSubtask(done);
+
+        Epic[] epics = gson.fromJson(client.send(epicsRequest, HttpResponse.BodyHandlers.ofString()).body(),
+                Epic[].class);
+        Epic epic = gson.fromJson(client.send(epicRequest, HttpResponse.BodyHandlers.ofString()).body(), Epic.class);
+        assertEquals(Status.DONE, epics[0].getStatus(), "Изменение подзадачи должно обновлять JSON эпика");
+        assertEquals(Status.DONE, epic.getStatus());
+    }
+
+    @Test
+    public void testTaskAdaptersMatchReflectiveJson() {
+        Gson reflectiveGson = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(Duration.class, new DurationAdapter())
+                .create();
+        int epicID = manager.addEpic(new Epic("Epic", "Description <b>", Status.NEW));
+        Subtask subtask = new Subtask("Subtask", "Кириллица \"в кавычках\"", Status.DONE, epicID);
+        subtask.setStartTime(LocalDateTime.of(2025, 12, 31, 23, 59));
+        subtask.setDuration(Duration.ofMinutes(90));
+        manager.addSubtask(subtask);
+        Task withoutID = new Task("Task", null, Status.IN_PROGRESS);
+
+        Epic epic = manager.getEpicByID(epicID);
+        assertEquals(reflectiveGson.toJson(epic), gson.toJson(epic));
+        assertEquals(reflectiveGson.toJson(subtask), gson.toJson(subtask));
+        assertEquals(reflectiveGson.toJson(withoutID), gson.toJson(withoutID));
+
+        Epic readEpic = gson.fromJson(gson.toJson(epic), Epic.class);
+        Subtask readSubtask = gson.fromJson(gson.toJson(subtask), Subtask.class);
+        assertEquals(epic.getSubtaskIDs(), readEpic.getSubtaskIDs());
+        assertEquals(epic.getEndTime(), readEpic.getEndTime());
+        assertEquals(epicID, readSubtask.getEpicID());
+        assertEquals(subtask.getDescription(), readSubtask.getDescription());
+        assertEquals(subtask.getStartTime(), readSubtask.getStartTime());
+        assertEquals(subtask.getDuration(), readSubtask.getDuration());
+    }
+}
+
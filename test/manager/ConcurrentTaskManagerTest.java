@@ -0,0 +1,60 @@
+package manager;
+
+import models.Status;
+import models.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    @BeforeEach
+    void init() {
+        taskManager = (ConcurrentTaskManager) getTaskManager();
+    }
+
+    @Override
+    TaskManager getTaskManager() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager(new InMemoryHistoryManager()));
+    }
+
+    @Test
+    void shouldAssignUniqueIDsUnderConcurrentAdds() throws Exception {
+        int threads = 8;
+        int tasksPerThread = 500;
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Callable<Void>> jobs = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            jobs.add(() -> {
+                for (int j = 0; j < tasksPerThread; j++) {
+                    ids.add(taskManager.addTask(new Task(nameTask, descriptionTask, Status.NEW)));
+                    taskManager.getAllTasks();
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> future : executor.invokeAll(jobs)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * tasksPerThread, ids.size(), "ID задач должны быть уникальны");
+        assertEquals(threads * tasksPerThread, taskManager.getAllTasks().size(), "Неверное количество задач");
+    }
+}
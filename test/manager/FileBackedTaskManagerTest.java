@@ -1,24 +1,35 @@
 package manager;
 
 import exceptions.FileInitializationException;
+import models.BatchAction;
+import models.BatchOperation;
 import models.Epic;
 import models.Status;
 import models.Subtask;
 import models.Task;
+import models.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
@@ -93,6 +104,469 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
 
 
 
+    @Test
+    void shouldReplayJournalOnLoad() throws IOException {
+        FileBackedTaskManager journalManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.JOURNAL);
+        int firstTaskID = journalManager.addTask(new Task(nameTask, descriptionTask, Status.NEW));
+        int secondTaskID = journalManager.addTask(new Task("Second Task", "Second Description", Status.NEW));
+        int epicID = journalManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        journalManager.addSubtask(new Subtask(nameSubtask, descriptionSubtask, Status.DONE, epicID));
+
+        Task updatedTask = new Task(nameTask, descriptionTask, Status.IN_PROGRESS);
+        updatedTask.setID(firstTaskID);
+        journalManager.updateTask(updatedTask);
+        journalManager.deleteTaskByID(secondTaskID);
+        int lastTaskID = journalManager.addTask(new Task("Last Task", "Last Description", Status.NEW));
+        journalManager.deleteTaskByID(lastTaskID);
+        journalManager.close();
+
+        List<String> snapshotLines = Files.readAllLines(testFile.toPath());
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+
+        assertEquals(1, snapshotLines.size(), "Снимок не должен переписываться при каждой операции");
+        assertEquals(1, loadedManager.getAllTasks().size(), "Неверное количество задач");
+        assertEquals(Status.IN_PROGRESS, loadedManager.getTaskByID(firstTaskID).getStatus(), "Статусы не равны");
+        assertEquals(Status.DONE, loadedManager.getEpicByID(epicID).getStatus(), "Статус эпика не пересчитан");
+        assertEquals(lastTaskID + 1, loadedManager.addTask(new Task(nameTask, descriptionTask, status)),
+                "id удалённых задач не должны переиспользоваться");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldReplayEpicDeletionWithSubtasks() {
+        FileBackedTaskManager journalManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.JOURNAL);
+        int epicID = journalManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        journalManager.addSubtask(new Subtask(nameSubtask, descriptionSubtask, status, epicID));
+        journalManager.deleteEpicByID(epicID);
+        journalManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+
+        assertTrue(loadedManager.getAllEpics().isEmpty(), "Эпик должен быть удалён");
+        assertTrue(loadedManager.getAllSubtasks().isEmpty(), "Подзадачи эпика должны быть удалены");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldCompactJournalIntoSnapshot() throws IOException {
+        FileBackedTaskManager journalManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.JOURNAL);
+        journalManager.setCompactionThresholds(Long.MAX_VALUE, 3);
+        for (int i = 0; i < 5; i++) {
+            journalManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+        journalManager.close();
+
+        List<String> snapshotLines = Files.readAllLines(testFile.toPath());
+        List<String> journalLines = Files.readAllLines(FileBackedTaskManager.journalPath(testFile));
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+
+        assertEquals(4, snapshotLines.size(), "Снимок должен содержать задачи из сжатого журнала");
+        assertEquals(2, journalLines.size(), "Журнал должен содержать только записи после сжатия");
+        assertTrue(Files.notExists(FileBackedTaskManager.compactingJournalPath(testFile)),
+                "Отложенный журнал должен удаляться после сжатия");
+        assertEquals(5, loadedManager.getAllTasks().size(), "Неверное количество задач");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldWriteBatchToJournalInOneAppend() throws IOException {
+        FileBackedTaskManager journalManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.JOURNAL);
+        int epicID = journalManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            operations.add(new BatchOperation(BatchAction.CREATE, TaskType.SUBTASK, null,
+                    new Subtask(nameSubtask + i, descriptionSubtask, Status.DONE, epicID)));
+        }
+        operations.add(new BatchOperation(BatchAction.DELETE, TaskType.SUBTASK, epicID + 1, null));
+        journalManager.applyBatch(operations);
+        journalManager.close();
+
+        List<String> journalLines = Files.readAllLines(FileBackedTaskManager.journalPath(testFile));
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+
+        assertEquals(12, journalLines.size(), "Каждая операция пакета должна попасть в журнал");
+        assertEquals(9, loadedManager.getAllSubtasks().size(), "Неверное количество подзадач");
+        assertEquals(Status.DONE, loadedManager.getEpicByID(epicID).getStatus(), "Статус эпика не пересчитан");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldSaveBatchSnapshotOnce() {
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            operations.add(new BatchOperation(BatchAction.CREATE, TaskType.TASK, null,
+                    new Task(nameTask + i, descriptionTask, status)));
+        }
+        taskManager.applyBatch(operations);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(5, loadedManager.getAllTasks().size(), "Пакет должен быть сохранён в снимок");
+    }
+
+    @Test
+    void shouldPersistConcurrentWritesWithGroupCommit() throws Exception {
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, new InMemoryHistoryManager(),
+                PersistenceMode.JOURNAL, Durability.GROUP_COMMIT);
+        journalManager.setGroupCommit(2, 16);
+        TaskManager concurrentManager = new ConcurrentTaskManager(journalManager);
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            jobs.add(() -> {
+                for (int j = 0; j < 25; j++) {
+                    concurrentManager.addTask(new Task(nameTask, descriptionTask, status));
+                    concurrentManager.awaitDurable();
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Future<Void> future : executor.invokeAll(jobs)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journalManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(100, loadedManager.getAllTasks().size(), "Неверное количество задач");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldDropTornJournalTailOnLoad() throws IOException {
+        FileBackedTaskManager journalManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.JOURNAL);
+        journalManager.addTask(new Task(nameTask, descriptionTask, status));
+        journalManager.addTask(new Task("Second Task", "Second Description", status));
+        journalManager.close();
+
+        Path journal = FileBackedTaskManager.journalPath(testFile);
+        Files.writeString(journal, "PUT,4,TA\n", StandardOpenOption.APPEND);
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(2, loadedManager.getAllTasks().size(), "Оборванная последняя запись должна отбрасываться");
+        loadedManager.addTask(new Task("Third Task", "Third Description", status));
+        loadedManager.close();
+
+        Files.writeString(journal, "PUT,9,TASK,\"Torn", StandardOpenOption.APPEND);
+        FileBackedTaskManager reloadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(3, reloadedManager.getAllTasks().size(), "Запись без перевода строки должна отбрасываться");
+        reloadedManager.addTask(new Task("Fourth Task", "Fourth Description", status));
+        reloadedManager.close();
+        FileBackedTaskManager lastManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(4, lastManager.getAllTasks().size(), "Новые записи не должны склеиваться с отброшенным хвостом");
+        lastManager.close();
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(journal));
+        lines.add(1, "PUT,4,TA");
+        Files.write(journal, lines);
+        assertThrows(IllegalArgumentException.class, () -> FileBackedTaskManager.loadFromFile(testFile),
+                "Испорченная запись в середине журнала должна приводить к ошибке");
+    }
+
+    @Test
+    void shouldLoadJournalWrittenWithFsync() {
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, new InMemoryHistoryManager(),
+                PersistenceMode.JOURNAL, Durability.FSYNC);
+        journalManager.addTask(new Task(nameTask, descriptionTask, status));
+        journalManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(1, loadedManager.getAllTasks().size(), "Неверное количество задач");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldCoalesceAsyncSnapshotWritesUntilFlush() throws IOException {
+        FileBackedTaskManager asyncManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.ASYNC_SNAPSHOT);
+        asyncManager.setFlushInterval(60_000);
+        for (int i = 0; i < 10; i++) {
+            asyncManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+
+        assertEquals(0, Files.size(testFile.toPath()), "Запись на диск должна откладываться до сброса");
+
+        asyncManager.flush();
+        assertEquals(11, Files.readAllLines(testFile.toPath()).size(), "Все изменения должны попасть в снимок");
+
+        asyncManager.deleteAllTasks();
+        asyncManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertTrue(loadedManager.getAllTasks().isEmpty(), "Изменения должны сохраняться при закрытии");
+    }
+
+    @Test
+    void concurrentWrapperShouldNotWaitForAsyncSnapshot() throws IOException {
+        FileBackedTaskManager asyncManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.ASYNC_SNAPSHOT);
+        asyncManager.setFlushInterval(60_000);
+        TaskManager concurrentManager = new ConcurrentTaskManager(asyncManager);
+
+        int id = concurrentManager.addTask(new Task(nameTask, descriptionTask, status));
+        assertNotNull(concurrentManager.getTaskByID(id), "Задача не найдена");
+
+        assertEquals(0, Files.size(testFile.toPath()), "Запись и чтение не должны ждать снимка");
+        asyncManager.close();
+    }
+
+    @Test
+    void shouldAwaitAsyncSnapshotCoveringChanges() throws IOException {
+        FileBackedTaskManager asyncManager =
+                new FileBackedTaskManager(testFile, new InMemoryHistoryManager(), PersistenceMode.ASYNC_SNAPSHOT);
+        asyncManager.setFlushInterval(20);
+        for (int i = 0; i < 3; i++) {
+            asyncManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+
+        asyncManager.awaitDurable();
+        assertEquals(4, Files.readAllLines(testFile.toPath()).size(), "awaitDurable должен дождаться снимка");
+        asyncManager.close();
+    }
+
+    @Test
+    void shouldSaveAndLoadBinarySnapshot() throws IOException {
+        taskManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        Task task = new Task("Задача", null, Status.IN_PROGRESS);
+        task.setStartTime(LocalDateTime.of(1969, 12, 31, 23, 15));
+        task.setDuration(Duration.ofMinutes(30));
+        int taskID = taskManager.addTask(task);
+        int epicID = taskManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        Subtask subtask = new Subtask(nameSubtask, descriptionSubtask, Status.DONE, epicID);
+        subtask.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        subtask.setDuration(Duration.ofMinutes(90));
+        int subtaskID = taskManager.addSubtask(subtask);
+
+        byte[] header = new byte[4];
+        System.arraycopy(Files.readAllBytes(testFile.toPath()), 0, header, 0, header.length);
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        Task loadedTask = loadedManager.getTaskByID(taskID);
+        Subtask loadedSubtask = loadedManager.getSubtaskByID(subtaskID);
+
+        assertEquals("KNBN", new String(header), "Снимок должен быть в двоичном формате");
+        assertEquals("Задача", loadedTask.getName());
+        assertNull(loadedTask.getDescription(), "Пустое описание должно сохраняться как null");
+        assertEquals(Status.IN_PROGRESS, loadedTask.getStatus());
+        assertEquals(task.getStartTime(), loadedTask.getStartTime());
+        assertEquals(task.getDuration(), loadedTask.getDuration());
+        assertEquals(epicID, loadedSubtask.getEpicID());
+        assertEquals(subtask.getEndTime(), loadedSubtask.getEndTime());
+        assertEquals(Status.DONE, loadedManager.getEpicByID(epicID).getStatus());
+
+        loadedManager.addTask(new Task(nameTask, descriptionTask, status));
+        byte[] reloadedHeader = new byte[4];
+        System.arraycopy(Files.readAllBytes(testFile.toPath()), 0, reloadedHeader, 0, reloadedHeader.length);
+        assertEquals("KNBN", new String(reloadedHeader), "Загруженный менеджер должен сохранять формат снимка");
+    }
+
+    @Test
+    void shouldSaveAndLoadSnapshotShardedByType() throws IOException {
+        taskManager.setSnapshotLayout(SnapshotLayout.SHARDED_BY_TYPE);
+        int taskID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        int epicID = taskManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        int subtaskID = taskManager.addSubtask(new Subtask(nameSubtask, descriptionSubtask, Status.DONE, epicID));
+
+        assertTrue(Files.readString(testFile.toPath()).startsWith("KNSH"), "Основной файл должен быть манифестом");
+        assertTrue(Files.exists(FileBackedTaskManager.shardPath(testFile, 3, TaskType.SUBTASK)));
+        assertTrue(Files.notExists(FileBackedTaskManager.shardPath(testFile, 2, TaskType.EPIC)),
+                "Файлы прошлого поколения должны удаляться");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(nameTask, loadedManager.getTaskByID(taskID).getName());
+        assertEquals(List.of(subtaskID), loadedManager.getEpicByID(epicID).getSubtaskIDs());
+        assertEquals(Status.DONE, loadedManager.getEpicByID(epicID).getStatus());
+
+        loadedManager.setSnapshotLayout(SnapshotLayout.SINGLE_FILE);
+        loadedManager.deleteTaskByID(taskID);
+        assertTrue(Files.notExists(FileBackedTaskManager.shardPath(testFile, 3, TaskType.TASK)),
+                "При возврате к одному файлу файлы по типам должны удаляться");
+        FileBackedTaskManager reloadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertTrue(reloadedManager.getAllTasks().isEmpty(), "Задача должна быть удалена");
+        assertEquals(Status.DONE, reloadedManager.getEpicByID(epicID).getStatus());
+    }
+
+    @Test
+    void shouldRewriteOnlyChangedRecordsInPagedMode() {
+        FileBackedTaskManager pagedManager = new FileBackedTaskManager(testFile, new InMemoryHistoryManager(),
+                PersistenceMode.PAGED);
+        for (int i = 0; i < 20; i++) {
+            pagedManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+        int epicID = pagedManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        int subtaskID = pagedManager.addSubtask(new Subtask(nameSubtask, descriptionSubtask, Status.DONE, epicID));
+        int deletedEpicID = pagedManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        int deletedSubtaskID = pagedManager.addSubtask(new Subtask(nameSubtask, descriptionSubtask, status,
+                deletedEpicID));
+
+        Task updatedTask = new Task(nameTask, descriptionTask, Status.IN_PROGRESS);
+        updatedTask.setID(1);
+        pagedManager.updateTask(updatedTask);
+        long sizeAfterFirstUpdate = testFile.length();
+        updatedTask.setStatus(Status.DONE);
+        pagedManager.updateTask(updatedTask);
+        pagedManager.deleteEpicByID(deletedEpicID);
+        pagedManager.close();
+
+        assertEquals(sizeAfterFirstUpdate, testFile.length(), "Освобождённые слоты должны переиспользоваться");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(20, loadedManager.getAllTasks().size());
+        assertEquals(Status.DONE, loadedManager.getTaskByID(1).getStatus());
+        assertEquals(Status.DONE, loadedManager.getEpicByID(epicID).getStatus());
+        assertNull(loadedManager.getSubtaskByID(deletedSubtaskID), "Подзадачи удалённого эпика не должны загружаться");
+
+        loadedManager.deleteAllTasks();
+        loadedManager.deleteSubtaskByID(subtaskID);
+        loadedManager.close();
+        FileBackedTaskManager reloadedManager = FileBackedTaskManager.loadFromFile(testFile);
+        assertTrue(reloadedManager.getAllTasks().isEmpty(), "Удаление всех задач должно сохраняться");
+        assertTrue(reloadedManager.getAllSubtasks().isEmpty());
+        assertEquals(Status.NEW, reloadedManager.getEpicByID(epicID).getStatus());
+        reloadedManager.close();
+    }
+
+    @Test
+    void shouldMovePlainSnapshotIntoPagedFile() {
+        int taskID = taskManager.addTask(new Task(nameTask, descriptionTask, Status.IN_PROGRESS));
+
+        FileBackedTaskManager pagedManager = FileBackedTaskManager.loadFromFile(testFile, PersistenceMode.PAGED);
+        pagedManager.addTask(new Task(nameTask, descriptionTask, status));
+        pagedManager.close();
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile);
+
+        assertEquals(2, loadedManager.getAllTasks().size());
+        assertEquals(Status.IN_PROGRESS, loadedManager.getTaskByID(taskID).getStatus());
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldMoveMappedBinarySnapshotIntoPagedFile() {
+        taskManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        for (int i = 0; i < 5; i++) {
+            taskManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+        int epicID = taskManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+
+        FileBackedTaskManager pagedManager = FileBackedTaskManager.loadMapped(testFile, PersistenceMode.PAGED,
+                Durability.ASYNC);
+        assertEquals(5, pagedManager.getAllTasks().size(), "Ленивые задачи не должны теряться при переносе");
+        assertEquals(nameTask + 4, pagedManager.getTaskByID(5).getName());
+        pagedManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(testFile, PersistenceMode.PAGED);
+        assertEquals(5, loadedManager.getAllTasks().size(), "Файл записей должен содержать все задачи");
+        assertEquals(nameEpic, loadedManager.getEpicByID(epicID).getName());
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldMaterializeMappedTasksBeforeRewritingFile() {
+        taskManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        for (int i = 0; i < 5; i++) {
+            taskManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadMapped(testFile, PersistenceMode.SNAPSHOT,
+                Durability.ASYNC);
+        loadedManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        loadedManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+
+        assertEquals(nameTask + 4, loadedManager.getTaskByID(5).getName(),
+                "Перезапись файла не должна портить ещё не созданные задачи");
+        assertEquals(5, loadedManager.getAllTasks().size());
+        assertEquals(5, FileBackedTaskManager.loadFromFile(testFile).getAllTasks().size());
+    }
+
+    @Test
+    void shouldMaterializeMappedTasksOnFirstAccess() {
+        taskManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        int firstTaskID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        int secondTaskID = taskManager.addTask(new Task(nameTask, descriptionTask, Status.DONE));
+        int deletedTaskID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        taskManager.deleteTaskByID(deletedTaskID);
+        int epicID = taskManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadMapped(testFile, PersistenceMode.SNAPSHOT,
+                Durability.ASYNC);
+
+        assertInstanceOf(LazyTaskMap.class, loadedManager.tasks);
+        assertEquals(2, loadedManager.tasks.size());
+        assertNull(loadedManager.getTaskByID(deletedTaskID), "Удалённая задача не должна загружаться");
+        assertEquals(Status.DONE, loadedManager.getTaskByID(secondTaskID).getStatus());
+        assertEquals(nameEpic, loadedManager.getEpicByID(epicID).getName());
+        assertEquals(2, loadedManager.getAllTasks().size());
+        assertEquals(descriptionTask, loadedManager.getTaskByID(firstTaskID).getDescription());
+        assertEquals(epicID + 1, loadedManager.addTask(new Task(nameTask, descriptionTask, status)),
+                "Новые id должны продолжаться после загруженных");
+    }
+
+    @Test
+    void shouldReplaceAndRemoveMappedTasksWithoutDecoding() {
+        taskManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        int firstTaskID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        int secondTaskID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadMapped(testFile, PersistenceMode.SNAPSHOT,
+                Durability.ASYNC);
+        Task replacement = new Task("Replacement", descriptionTask, Status.DONE);
+        replacement.setID(secondTaskID);
+
+        assertNull(loadedManager.tasks.remove(firstTaskID), "Несозданная задача не должна читаться при удалении");
+        assertNull(loadedManager.tasks.put(secondTaskID, replacement), "Несозданная задача не должна читаться при замене");
+        assertEquals(1, loadedManager.tasks.size());
+        assertNull(loadedManager.tasks.get(firstTaskID));
+        assertEquals("Replacement", loadedManager.tasks.get(secondTaskID).getName());
+    }
+
+    @Test
+    void shouldPageMappedTasksWithoutMaterializingTheRest() {
+        taskManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        for (int i = 0; i < 10; i++) {
+            taskManager.addTask(new Task(nameTask + i, descriptionTask, status));
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadMapped(testFile, PersistenceMode.SNAPSHOT,
+                Durability.ASYNC);
+        loadedManager.getTaskByID(5);
+        List<Task> firstPage = loadedManager.getTasksPage(2, 4);
+        List<Task> lastPage = loadedManager.getTasksPage(firstPage.getLast().getID(), 4);
+
+        assertEquals(List.of(3, 4, 5, 6), firstPage.stream().map(Task::getID).toList());
+        assertEquals(nameTask + 2, firstPage.getFirst().getName());
+        assertEquals(List.of(7, 8, 9, 10), lastPage.stream().map(Task::getID).toList());
+        assertTrue(loadedManager.getTasksPage(10, 4).isEmpty());
+    }
+
+    @Test
+    void shouldApplyJournalOverMappedSnapshot() {
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, new InMemoryHistoryManager(),
+                PersistenceMode.JOURNAL);
+        journalManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        int updatedTaskID = journalManager.addTask(new Task(nameTask, descriptionTask, status));
+        int deletedTaskID = journalManager.addTask(new Task(nameTask, descriptionTask, status));
+        journalManager.compact();
+        Task updatedTask = new Task("Обновлённая", descriptionTask, Status.IN_PROGRESS);
+        updatedTask.setID(updatedTaskID);
+        journalManager.updateTask(updatedTask);
+        journalManager.deleteTaskByID(deletedTaskID);
+        journalManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadMapped(testFile, PersistenceMode.JOURNAL,
+                Durability.ASYNC);
+
+        assertEquals(1, loadedManager.getAllTasks().size());
+        assertEquals("Обновлённая", loadedManager.getTaskByID(updatedTaskID).getName());
+        assertNull(loadedManager.getTaskByID(deletedTaskID), "Удаление из журнала должно перекрывать снимок");
+        loadedManager.close();
+    }
+
     @Test
     void shouldCreateTaskWithTimeFromString() {
         String taskCsv = "1,TASK,Test Task,NEW,Description,01.01.25: 10:00,120,-";
@@ -140,6 +614,18 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         assertEquals(2, ((Subtask) subtask).getEpicID(), "EpicID должен совпадать");
     }
 
+    @Test
+    void shouldRejectSubtaskWithoutEpicField() {
+        CSVTaskReader reader = new CSVTaskReader("3,SUBTASK,First,NEW,Description,-,-,2\n" +
+                "5,TASK,Task,NEW,Description,-,-\n" +
+                "4,SUBTASK,Second,NEW,Description,-,-\n");
+
+        assertEquals(2, ((Subtask) reader.next()).getEpicID());
+        assertEquals("Task", reader.next().getName(), "У задачи поле epic может отсутствовать");
+        assertThrows(IllegalArgumentException.class, reader::next,
+                "Подзадача без поля epic не должна брать его из предыдущей строки");
+    }
+
     @Test
     void shouldCreateTaskWithoutTimeFromString() {
         String taskCsv = "4,TASK,No Time Task,DONE,No Time Description,-,-,-";
@@ -155,6 +641,42 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         assertNull(task.getEndTime(), "EndTime должен быть null");
     }
 
+    @Test
+    void shouldCreateTaskWithQuotedFieldsFromString() {
+        String quotedCsv = "12,SUBTASK,\"Купить молоко, хлеб\",DONE,\"Сказать \"\"спасибо\"\"\r\nи уйти\"," +
+                "31.12.24: 23:45,15,3";
+
+        Subtask subtask = (Subtask) CSVTaskFormat.createTaskFromString(quotedCsv);
+
+        assertEquals(12, subtask.getID());
+        assertEquals("Купить молоко, хлеб", subtask.getName());
+        assertEquals("Сказать \"спасибо\"\r\nи уйти", subtask.getDescription());
+        assertEquals(LocalDateTime.of(2024, 12, 31, 23, 45), subtask.getStartTime());
+        assertEquals(Duration.ofMinutes(15), subtask.getDuration());
+        assertEquals(3, subtask.getEpicID());
+        assertEquals(quotedCsv, CSVTaskFormat.createStringFromTask(subtask));
+    }
+
+    @Test
+    void shouldSaveAndLoadFieldsWithSeparators() {
+        int taskID = taskManager.addTask(new Task("Имя, с запятой", "Строка 1\nстрока \"2\"", status));
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(
+                new File(testFile.getPath() + ".journal"), new InMemoryHistoryManager(), PersistenceMode.JOURNAL);
+        int journalTaskID = journalManager.addTask(new Task("\"В кавычках\"", "a,b\nc", status));
+        journalManager.close();
+
+        Task loadedTask = FileBackedTaskManager.loadFromFile(testFile).getTaskByID(taskID);
+        FileBackedTaskManager loadedJournalManager = FileBackedTaskManager.loadFromFile(
+                new File(testFile.getPath() + ".journal"));
+        Task loadedJournalTask = loadedJournalManager.getTaskByID(journalTaskID);
+        loadedJournalManager.close();
+
+        assertEquals("Имя, с запятой", loadedTask.getName());
+        assertEquals("Строка 1\nстрока \"2\"", loadedTask.getDescription());
+        assertEquals("\"В кавычках\"", loadedJournalTask.getName());
+        assertEquals("a,b\nc", loadedJournalTask.getDescription());
+    }
+
     @Test
     void shouldCreateTaskWithDifferentStatusesFromString() {
         String newTaskCsv = "5,TASK,New Task,NEW,Description,-,-,-";
@@ -1,20 +1,26 @@
 package manager;
 
 import exceptions.TaskValidationException;
+import models.BatchAction;
+import models.BatchOperation;
+import models.BatchResult;
 import models.Subtask;
 import models.Epic;
 import models.Status;
 import models.Task;
+import models.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
@@ -192,4 +198,174 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
 
       assertEquals(1, taskManager.getPrioritizedTasks().size());
    }
-}
\ No newline at end of file
+
+   @Test
+   void shouldKeepTasksWithSameStartTimeInPrioritizedTasks() {
+      Task task1 = new Task("Task 1", "Description 1", Status.NEW);
+      task1.setStartTime(LocalDateTime.of(2025, 1, 15, 10, 0));
+      task1.setDuration(Duration.ZERO);
+
+      Task task2 = new Task("Task 2", "Description 2", Status.NEW);
+      task2.setStartTime(LocalDateTime.of(2025, 1, 15, 10, 0));
+      task2.setDuration(Duration.ofHours(1));
+
+      taskManager.addTask(task1);
+      taskManager.addTask(task2);
+
+      assertEquals(2, taskManager.getPrioritizedTasks().size(),
+              "Задачи с одинаковым startTime не должны схлопываться");
+   }
+
+   @Test
+   void shouldFindOverlapWithNeighboursInPrioritizedTasks() {
+      for (int i = 0; i < 10; i++) {
+         Task task = new Task("Task " + i, "Description", Status.NEW);
+         task.setStartTime(LocalDateTime.of(2025, 1, 15, 0, 0).plusHours(2L * i));
+         task.setDuration(Duration.ofHours(1));
+         taskManager.addTask(task);
+      }
+
+      Task overlapsPrevious = new Task("Previous", "Description", Status.NEW);
+      overlapsPrevious.setStartTime(LocalDateTime.of(2025, 1, 15, 8, 30));
+      overlapsPrevious.setDuration(Duration.ofMinutes(20));
+
+      Task overlapsNext = new Task("Next", "Description", Status.NEW);
+      overlapsNext.setStartTime(LocalDateTime.of(2025, 1, 15, 9, 30));
+      overlapsNext.setDuration(Duration.ofHours(1));
+
+      Task betweenTasks = new Task("Between", "Description", Status.NEW);
+      betweenTasks.setStartTime(LocalDateTime.of(2025, 1, 15, 9, 0));
+      betweenTasks.setDuration(Duration.ofHours(1));
+
+      assertThrows(TaskValidationException.class, () -> taskManager.addTask(overlapsPrevious));
+      assertThrows(TaskValidationException.class, () -> taskManager.addTask(overlapsNext));
+      assertDoesNotThrow(() -> taskManager.addTask(betweenTasks));
+      assertEquals(11, taskManager.getPrioritizedTasks().size());
+   }
+
+   @Test
+   void shouldBulkLoadTasksAndRollUpEpics() {
+      Epic epic = new Epic("Epic", "Description", Status.NEW);
+      epic.setID(2);
+      Subtask first = new Subtask("Subtask 1", "Description", Status.DONE, 2);
+      first.setID(3);
+      first.setStartTime(LocalDateTime.of(2025, 1, 15, 12, 0));
+      first.setDuration(Duration.ofHours(1));
+      Subtask second = new Subtask("Subtask 2", "Description", Status.NEW, 2);
+      second.setID(4);
+      second.setStartTime(LocalDateTime.of(2025, 1, 15, 14, 0));
+      second.setDuration(Duration.ofHours(2));
+      Subtask orphan = new Subtask("Orphan", "Description", Status.NEW, 42);
+      orphan.setID(5);
+      Task task = new Task("Task", "Description", Status.NEW);
+      task.setID(1);
+      task.setStartTime(LocalDateTime.of(2025, 1, 15, 10, 0));
+      task.setDuration(Duration.ofHours(1));
+
+      taskManager.bulkLoad(List.of(task, epic, first, second, orphan));
+
+      assertEquals(List.of(task, first, second), taskManager.getPrioritizedTasks());
+      assertEquals(List.of(3, 4), epic.getSubtaskIDs());
+      assertEquals(Status.IN_PROGRESS, epic.getStatus());
+      assertEquals(first.getStartTime(), epic.getStartTime());
+      assertEquals(second.getEndTime(), epic.getEndTime());
+      assertEquals(Duration.ofHours(3), epic.getDuration());
+      assertEquals(2, taskManager.getAllSubtasks().size(), "Подзадача без эпика не должна загружаться");
+
+      taskManager.deleteSubtaskByID(4);
+      assertEquals(Status.DONE, epic.getStatus(), "После загрузки эпик должен обновляться как обычно");
+   }
+
+   @Test
+   void shouldRejectOverlappingTasksInBulkLoad() {
+      Task longTask = new Task("Long", "Description", Status.NEW);
+      longTask.setID(1);
+      longTask.setStartTime(LocalDateTime.of(2025, 1, 15, 10, 0));
+      longTask.setDuration(Duration.ofHours(5));
+      Task shortTask = new Task("Short", "Description", Status.NEW);
+      shortTask.setID(2);
+      shortTask.setStartTime(LocalDateTime.of(2025, 1, 15, 11, 0));
+      shortTask.setDuration(Duration.ofHours(1));
+      Task hiddenTask = new Task("Hidden", "Description", Status.NEW);
+      hiddenTask.setID(3);
+      hiddenTask.setStartTime(LocalDateTime.of(2025, 1, 15, 13, 0));
+      hiddenTask.setDuration(Duration.ofHours(1));
+
+      assertThrows(TaskValidationException.class, () -> taskManager.bulkLoad(List.of(longTask, hiddenTask)));
+      assertThrows(TaskValidationException.class, () -> new InMemoryTaskManager(new InMemoryHistoryManager())
+              .bulkLoad(List.of(longTask, shortTask)));
+   }
+
+   @Test
+   void epicStatusShouldBeInProgressWhenSubtaskHasNoStatus() {
+      Epic epic = new Epic("Epic", "Description", Status.NEW);
+      taskManager.addEpic(epic);
+
+      Subtask subtask = new Subtask("Subtask", "Description", null, epic.getID());
+      assertNotNull(taskManager.addSubtask(subtask), "Подзадача без статуса должна добавляться");
+      assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Подзадача без статуса не считается ни NEW, ни DONE");
+
+      Subtask updatedSubtask = new Subtask("Subtask", "Description", Status.DONE, epic.getID());
+      updatedSubtask.setID(subtask.getID());
+      taskManager.updateSubtask(updatedSubtask);
+      assertEquals(Status.DONE, epic.getStatus(), "Статус Epic должен стать DONE");
+
+      Subtask withoutStatus = new Subtask("Subtask", "Description", null, epic.getID());
+      withoutStatus.setID(subtask.getID());
+      taskManager.updateSubtask(withoutStatus);
+      taskManager.deleteSubtaskByID(subtask.getID());
+      assertEquals(Status.NEW, epic.getStatus(), "Статус Epic без подзадач должен быть NEW");
+   }
+
+   @Test
+   void batchShouldReportIllegalArgumentAndContinue() {
+      InMemoryTaskManager failingManager = new InMemoryTaskManager(new InMemoryHistoryManager()) {
+         @Override
+         public void updateTask(Task task) {
+            throw new IllegalArgumentException("некорректная задача");
+         }
+      };
+      int taskID = failingManager.addTask(new Task("Task", "Description", Status.NEW));
+
+      List<BatchResult> results = failingManager.applyBatch(List.of(
+              new BatchOperation(BatchAction.UPDATE, TaskType.TASK, taskID,
+                      new Task("Task", "Description", Status.DONE)),
+              new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, new Task("Next", "Description", Status.NEW))));
+
+      assertEquals(List.of(400, 201), results.stream().map(BatchResult::getStatus).toList());
+      assertEquals(2, failingManager.getAllTasks().size(), "Ошибка операции не должна прерывать пакет");
+   }
+
+   @Test
+   void batchShouldPropagateUnexpectedFailure() {
+      InMemoryTaskManager failingManager = new InMemoryTaskManager(new InMemoryHistoryManager()) {
+         @Override
+         public void updateTask(Task task) {
+            throw new IllegalStateException("сбой");
+         }
+      };
+      int taskID = failingManager.addTask(new Task("Task", "Description", Status.NEW));
+
+      assertThrows(IllegalStateException.class, () -> failingManager.applyBatch(List.of(
+              new BatchOperation(BatchAction.UPDATE, TaskType.TASK, taskID,
+                      new Task("Task", "Description", Status.DONE)),
+              new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, new Task("Next", "Description", Status.NEW)))));
+      assertEquals(1, failingManager.getAllTasks().size(), "Сбой сервера должен прерывать пакет");
+   }
+
+   @Test
+   void tasksPageShouldWorkWithUnsortedStorage() {
+      InMemoryTaskManager hashManager = new InMemoryTaskManager(new InMemoryHistoryManager()) {
+         {
+            tasks = new HashMap<>();
+         }
+      };
+      for (int i = 0; i < 5; i++) {
+         hashManager.addTask(new Task("Task " + i, "Description", Status.NEW));
+      }
+
+      List<Task> page = hashManager.getTasksPage(1, 2);
+
+      assertEquals(List.of(2, 3), page.stream().map(Task::getID).toList(), "Страница должна идти по возрастанию id");
+   }
+}
@@ -1,10 +1,15 @@
 package manager;
 
 import exceptions.TaskValidationException;
+import models.BatchAction;
+import models.BatchOperation;
+import models.BatchResult;
 import models.Epic;
 import models.Status;
 import models.Subtask;
 import models.Task;
+import models.TaskFilter;
+import models.TaskType;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
@@ -527,4 +532,200 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(Status.IN_PROGRESS, epic.getStatus(),
                 "Статус Epic должен быть IN_PROGRESS когда все подзадачи IN_PROGRESS");
     }
-}
\ No newline at end of file
+
+    @Test
+    void epicStatusShouldFollowSubtaskUpdatesAndDeletes() {
+        Epic epic = new Epic(nameEpic, descriptionEpic, status);
+        taskManager.addEpic(epic);
+
+        Subtask subtask1 = new Subtask("Subtask 1", "Description 1", Status.NEW, epic.getID());
+        Subtask subtask2 = new Subtask("Subtask 2", "Description 2", Status.NEW, epic.getID());
+        taskManager.addSubtask(subtask1);
+        taskManager.addSubtask(subtask2);
+
+        Subtask updatedSubtask = new Subtask("Subtask 1", "Description 1", Status.DONE, epic.getID());
+        updatedSubtask.setID(subtask1.getID());
+        taskManager.updateSubtask(updatedSubtask);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Статус Epic должен стать IN_PROGRESS");
+
+        taskManager.deleteSubtaskByID(subtask2.getID());
+        assertEquals(Status.DONE, epic.getStatus(), "Статус Epic должен стать DONE");
+
+        taskManager.deleteAllSubtasks();
+        assertEquals(Status.NEW, epic.getStatus(), "Статус Epic без подзадач должен быть NEW");
+    }
+
+    @Test
+    void epicTimesShouldFollowSubtaskAddsAndDeletes() {
+        Epic epic = new Epic(nameEpic, descriptionEpic, status);
+        taskManager.addEpic(epic);
+
+        Subtask subtask1 = new Subtask("Subtask 1", "Description 1", Status.NEW, epic.getID());
+        subtask1.setStartTime(LocalDateTime.of(2025, 1, 15, 9, 0));
+        subtask1.setDuration(Duration.ofHours(1));
+        Subtask subtask2 = new Subtask("Subtask 2", "Description 2", Status.NEW, epic.getID());
+        subtask2.setStartTime(LocalDateTime.of(2025, 1, 15, 12, 0));
+        subtask2.setDuration(Duration.ofHours(2));
+        taskManager.addSubtask(subtask1);
+        taskManager.addSubtask(subtask2);
+
+        assertEquals(LocalDateTime.of(2025, 1, 15, 9, 0), epic.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 1, 15, 14, 0), epic.getEndTime());
+        assertEquals(Duration.ofHours(3), epic.getDuration());
+
+        taskManager.deleteSubtaskByID(subtask1.getID());
+        assertEquals(LocalDateTime.of(2025, 1, 15, 12, 0), epic.getStartTime());
+        assertEquals(Duration.ofHours(2), epic.getDuration());
+
+        taskManager.deleteSubtaskByID(subtask2.getID());
+        assertNull(epic.getStartTime(), "У эпика без подзадач не должно быть startTime");
+        assertNull(epic.getEndTime(), "У эпика без подзадач не должно быть endTime");
+        assertEquals(Duration.ZERO, epic.getDuration());
+    }
+
+    @Test
+    void pagesShouldWalkAllTasksInIdOrder() {
+        List<Integer> taskIDs = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            taskIDs.add(taskManager.addTask(new Task(nameTask + i, descriptionTask, status)));
+            taskManager.addEpic(new Epic(nameEpic + i, descriptionEpic, status));
+        }
+        taskManager.deleteTaskByID(taskIDs.get(3));
+        taskIDs.remove(3);
+
+        List<Integer> pagedIDs = new ArrayList<>();
+        int cursor = 0;
+        List<Task> page;
+        do {
+            page = taskManager.getTasksPage(cursor, 4);
+            for (Task task : page) {
+                pagedIDs.add(task.getID());
+            }
+            if (!page.isEmpty()) {
+                cursor = page.getLast().getID();
+            }
+        } while (page.size() == 4);
+
+        assertEquals(taskIDs, pagedIDs);
+        assertEquals(3, taskManager.getEpicsPage(taskManager.getAllEpics().get(3).getID(), 10).size());
+        assertTrue(taskManager.getSubtasksPage(0, 10).isEmpty());
+    }
+
+    @Test
+    void historyPageShouldContinueAfterCursor() {
+        int firstID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        int secondID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        int thirdID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        taskManager.getTaskByID(thirdID);
+        taskManager.getTaskByID(firstID);
+        taskManager.getTaskByID(secondID);
+
+        List<Task> firstPage = taskManager.getHistoryPage(0, 2);
+        List<Task> secondPage = taskManager.getHistoryPage(firstPage.getLast().getID(), 2);
+
+        assertEquals(List.of(thirdID, firstID), firstPage.stream().map(Task::getID).toList());
+        assertEquals(List.of(secondID), secondPage.stream().map(Task::getID).toList());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getHistoryPage(999, 2),
+                "Курсор на задачу не из истории должен отклоняться");
+    }
+
+    @Test
+    void versionsShouldGrowOnlyWhenDataChanges() {
+        int epicID = taskManager.addEpic(new Epic(nameTask, descriptionTask, status));
+        long epicsVersion = taskManager.getEpicsVersion();
+        long epicVersion = taskManager.getEpicByID(epicID).getVersion();
+        long tasksVersion = taskManager.getTasksVersion();
+
+        taskManager.getAllEpics();
+        assertEquals(epicsVersion, taskManager.getEpicsVersion(), "Чтение не должно менять версию");
+
+        int subtaskID = taskManager.addSubtask(new Subtask(nameTask, descriptionTask, Status.DONE, epicID));
+        assertTrue(taskManager.getSubtasksVersion() > epicsVersion);
+        assertTrue(taskManager.getEpicsVersion() > epicsVersion, "Подзадача меняет статус эпика");
+        assertTrue(taskManager.getEpicByID(epicID).getVersion() > epicVersion);
+        assertEquals(tasksVersion, taskManager.getTasksVersion(), "Задачи не менялись");
+
+        long historyVersion = taskManager.getHistoryVersion();
+        taskManager.getSubtaskByID(subtaskID);
+        assertTrue(taskManager.getHistoryVersion() > historyVersion, "Просмотр меняет историю");
+    }
+
+    @Test
+    void batchShouldApplyOperationsInOrderAndReportEachResult() {
+        int taskID = taskManager.addTask(new Task(nameTask, descriptionTask, status));
+        Task timed = new Task(nameTask, descriptionTask, status);
+        timed.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        timed.setDuration(Duration.ofMinutes(30));
+        Task overlapping = new Task(nameTask, descriptionTask, status);
+        overlapping.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 15));
+        overlapping.setDuration(Duration.ofMinutes(30));
+        Task updated = new Task(nameTask, descriptionTask, Status.DONE);
+
+        List<BatchResult> results = taskManager.applyBatch(List.of(
+                new BatchOperation(BatchAction.CREATE, TaskType.EPIC, null, new Epic(nameEpic, descriptionEpic, status)),
+                new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, timed),
+                new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, overlapping),
+                new BatchOperation(BatchAction.CREATE, TaskType.SUBTASK, null,
+                        new Subtask(nameSubtask, descriptionSubtask, status, 999)),
+                new BatchOperation(BatchAction.UPDATE, TaskType.TASK, taskID, updated),
+                new BatchOperation(BatchAction.UPDATE, TaskType.EPIC, taskID, new Epic(nameEpic, descriptionEpic, status)),
+                new BatchOperation(BatchAction.DELETE, TaskType.TASK, 999, null),
+                new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, new Epic(nameEpic, descriptionEpic, status))));
+
+        assertEquals(List.of(201, 201, 406, 404, 200, 404, 404, 400),
+                results.stream().map(BatchResult::getStatus).toList());
+        assertNotNull(taskManager.getEpicByID(results.getFirst().getID()), "Эпик из пакета не создан");
+        assertEquals(Status.DONE, taskManager.getTaskByID(taskID).getStatus(), "Задача из пакета не обновлена");
+        assertEquals(2, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void batchShouldContinueAfterMissingID() {
+        List<BatchResult> results = taskManager.applyBatch(List.of(
+                new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, new Task(nameTask, descriptionTask, status)),
+                new BatchOperation(BatchAction.UPDATE, TaskType.SUBTASK, 999,
+                        new Subtask(nameSubtask, descriptionSubtask, status, 999)),
+                new BatchOperation(BatchAction.DELETE, TaskType.EPIC, 999, null),
+                new BatchOperation(BatchAction.CREATE, TaskType.TASK, null, new Task("Last", descriptionTask, status))));
+
+        assertEquals(List.of(201, 404, 404, 201), results.stream().map(BatchResult::getStatus).toList());
+        assertEquals(999, results.get(1).getID());
+        assertEquals("Last", taskManager.getTaskByID(results.getLast().getID()).getName(),
+                "Операции после ненайденного id должны выполняться");
+    }
+
+    @Test
+    void findShouldUseIndexesAndFollowChanges() {
+        int epicID = taskManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        int otherEpicID = taskManager.addEpic(new Epic(nameEpic, descriptionEpic, status));
+        LocalDateTime monday = LocalDateTime.of(2025, 3, 3, 9, 0);
+        List<Integer> subtaskIDs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Subtask subtask = new Subtask(nameSubtask + i, descriptionSubtask,
+                    i % 2 == 0 ? Status.IN_PROGRESS : Status.NEW, i < 4 ? epicID : otherEpicID);
+            subtask.setStartTime(monday.plusDays(i * 2L));
+            subtask.setDuration(Duration.ofMinutes(30));
+            subtaskIDs.add(taskManager.addSubtask(subtask));
+        }
+        TaskFilter thisWeek = new TaskFilter(Status.IN_PROGRESS, null, monday, monday.plusDays(7));
+
+        assertEquals(List.of(subtaskIDs.get(0), subtaskIDs.get(2)),
+                taskManager.findSubtasks(thisWeek).stream().map(Task::getID).toList());
+        assertEquals(List.of(subtaskIDs.get(4), subtaskIDs.get(5)),
+                taskManager.findSubtasks(new TaskFilter(null, otherEpicID, null, null))
+                        .stream().map(Task::getID).toList());
+
+        Subtask done = new Subtask(nameSubtask, descriptionSubtask, Status.DONE, epicID);
+        done.setID(subtaskIDs.get(0));
+        taskManager.updateSubtask(done);
+        taskManager.deleteSubtaskByID(subtaskIDs.get(2));
+
+        assertTrue(taskManager.findSubtasks(thisWeek).isEmpty(), "Индекс должен учитывать изменения");
+        assertEquals(List.of(subtaskIDs.get(0)), taskManager.findSubtasks(
+                new TaskFilter(Status.DONE, null, null, null)).stream().map(Task::getID).toList());
+        assertEquals(List.of(epicID, otherEpicID), taskManager.findEpics(
+                new TaskFilter(Status.IN_PROGRESS, null, null, null)).stream().map(Task::getID).toList());
+        assertTrue(taskManager.findTasks(new TaskFilter(Status.NEW, null, null, null)).isEmpty());
+    }
+}
+